@@ -0,0 +1,611 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Implements the boxed {@link java.util.NavigableSet} methods, the views and the iterators of an
+ * {@link IntNavigableSet} in terms of its primitive methods.
+ *
+ * @author Lee Yik Jiun
+ */
+public abstract class AbstractIntNavigableSet extends AbstractSet<Integer> implements IntNavigableSet {
+    @Override
+    public boolean contains(Object o) {
+        return containsInt((int) o);
+    }
+
+    @Override
+    public boolean add(Integer integer) {
+        return addInt(integer);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeInt((int) o);
+    }
+
+    @Override
+    public int ceilingInt(int integer) {
+        return containsInt(integer) ? integer : successor(integer);
+    }
+
+    @Override
+    public int floorInt(int integer) {
+        return containsInt(integer) ? integer : predecessor(integer);
+    }
+
+    @Override
+    public Integer lower(Integer integer) {
+        return isEmpty() || integer <= firstInt() ? null : predecessor(integer);
+    }
+
+    @Override
+    public Integer floor(Integer integer) {
+        return isEmpty() || integer < firstInt() ? null : floorInt(integer);
+    }
+
+    @Override
+    public Integer ceiling(Integer integer) {
+        return isEmpty() || integer > lastInt() ? null : ceilingInt(integer);
+    }
+
+    @Override
+    public Integer higher(Integer integer) {
+        return isEmpty() || integer >= lastInt() ? null : successor(integer);
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public Integer pollFirst() {
+        if (isEmpty()) {
+            return null;
+        }
+        int first = firstInt();
+        removeInt(first);
+        return first;
+    }
+
+    @Override
+    public Integer pollLast() {
+        if (isEmpty()) {
+            return null;
+        }
+        int last = lastInt();
+        removeInt(last);
+        return last;
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] integers = new int[size()];
+        PrimitiveIterator.OfInt iterator = iterator();
+        for (int i = 0; i < integers.length; ++i) {
+            integers[i] = iterator.nextInt();
+        }
+        return integers;
+    }
+
+    @Override
+    public int countInRange(int lo, int hi) {
+        int count = 0;
+        for (PrimitiveIterator.OfInt iterator = rangeIterator(lo, hi); iterator.hasNext(); iterator.nextInt()) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+        if (lo > hi) {
+            return Spliterators.iterator(Spliterators.emptyIntSpliterator());
+        }
+        return new SubSet(this, lo, true, hi, true).iterator();
+    }
+
+    @Override
+    public int removeRange(int lo, int hi) {
+        int removed = 0;
+        for (PrimitiveIterator.OfInt iterator = rangeIterator(lo, hi); iterator.hasNext(); ++removed) {
+            iterator.nextInt();
+            iterator.remove();
+        }
+        return removed;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new AscendingIterator();
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliterator(iterator(), size(),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public IntNavigableSet descendingSet() {
+        return new DescendingSet(this);
+    }
+
+    @Override
+    public IntNavigableSet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(this, fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public IntNavigableSet headSet(Integer toElement, boolean inclusive) {
+        return new SubSet(this, Integer.MIN_VALUE, true, toElement, inclusive);
+    }
+
+    @Override
+    public IntNavigableSet tailSet(Integer fromElement, boolean inclusive) {
+        return new SubSet(this, fromElement, inclusive, Integer.MAX_VALUE, true);
+    }
+
+    @Override
+    public IntNavigableSet subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public IntNavigableSet headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public IntNavigableSet tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    private class AscendingIterator implements PrimitiveIterator.OfInt {
+        private boolean hasNext;
+        private int next;
+        private int last;
+        private boolean canRemove = false;
+
+        AscendingIterator() {
+            hasNext = !isEmpty();
+            if (hasNext) {
+                next = firstInt();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            canRemove = true;
+            hasNext = last < lastInt();
+            if (hasNext) {
+                next = successor(last);
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            removeInt(last);
+            canRemove = false;
+        }
+    }
+
+    private class DescendingIterator implements PrimitiveIterator.OfInt {
+        private boolean hasNext;
+        private int next;
+        private int last;
+        private boolean canRemove = false;
+
+        DescendingIterator() {
+            hasNext = !isEmpty();
+            if (hasNext) {
+                next = lastInt();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            canRemove = true;
+            hasNext = last > firstInt();
+            if (hasNext) {
+                next = predecessor(last);
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            removeInt(last);
+            canRemove = false;
+        }
+    }
+
+    /**
+     * An ascending view of the elements in [lo, hi] of the backing set.
+     */
+    static class SubSet extends AbstractIntNavigableSet {
+        private final IntNavigableSet m;
+        private final int lo;
+        private final int hi;
+
+        SubSet(IntNavigableSet m, int fromElement, boolean fromInclusive, int toElement, boolean toInclusive) {
+            this.m = m;
+            long lo = fromInclusive ? fromElement : fromElement + 1L;
+            long hi = toInclusive ? toElement : toElement - 1L;
+            if (lo > hi) {
+                // empty view
+                lo = 1;
+                hi = 0;
+            }
+            this.lo = (int) lo;
+            this.hi = (int) hi;
+        }
+
+        private boolean inRange(int integer) {
+            return lo <= integer && integer <= hi;
+        }
+
+        /**
+         * Requires integer <= m.lastInt().
+         */
+        private int ceilingInBacking(int integer) {
+            int first = m.firstInt();
+            return integer <= first ? first : m.ceilingInt(integer);
+        }
+
+        /**
+         * Requires integer >= m.firstInt().
+         */
+        private int floorInBacking(int integer) {
+            int last = m.lastInt();
+            return integer >= last ? last : m.floorInt(integer);
+        }
+
+        @Override
+        public int size() {
+            return m.countInRange(lo, hi);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lo > hi || m.isEmpty() || lo > m.lastInt() || ceilingInBacking(lo) > hi;
+        }
+
+        @Override
+        public boolean containsInt(int integer) {
+            return inRange(integer) && m.containsInt(integer);
+        }
+
+        @Override
+        public boolean addInt(int integer) {
+            if (!inRange(integer)) {
+                throw new IllegalArgumentException("integer out of range");
+            }
+            return m.addInt(integer);
+        }
+
+        @Override
+        public boolean removeInt(int integer) {
+            return inRange(integer) && m.removeInt(integer);
+        }
+
+        @Override
+        public int firstInt() {
+            if (lo > hi || m.isEmpty() || lo > m.lastInt()) {
+                throw new NoSuchElementException();
+            }
+            int first = ceilingInBacking(lo);
+            if (first > hi) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public int lastInt() {
+            if (lo > hi || m.isEmpty() || hi < m.firstInt()) {
+                throw new NoSuchElementException();
+            }
+            int last = floorInBacking(hi);
+            if (last < lo) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        @Override
+        public int successor(int integer) {
+            if (integer < lo) {
+                return firstInt();
+            }
+            if (integer >= hi) {
+                throw new NoSuchElementException();
+            }
+            int successor = m.successor(integer);
+            if (successor > hi) {
+                throw new NoSuchElementException();
+            }
+            return successor;
+        }
+
+        @Override
+        public int predecessor(int integer) {
+            if (integer > hi) {
+                return lastInt();
+            }
+            if (integer <= lo) {
+                throw new NoSuchElementException();
+            }
+            int predecessor = m.predecessor(integer);
+            if (predecessor < lo) {
+                throw new NoSuchElementException();
+            }
+            return predecessor;
+        }
+
+        @Override
+        public int countInRange(int lo, int hi) {
+            return m.countInRange(Math.max(lo, this.lo), Math.min(hi, this.hi));
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+            return m.rangeIterator(Math.max(lo, this.lo), Math.min(hi, this.hi));
+        }
+
+        @Override
+        public int removeRange(int lo, int hi) {
+            return m.removeRange(Math.max(lo, this.lo), Math.min(hi, this.hi));
+        }
+
+        @Override
+        public IntNavigableSet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+            if (fromElement > toElement) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            SubSet subSet = new SubSet(m, fromElement, fromInclusive, toElement, toInclusive);
+            if (subSet.lo <= subSet.hi && (subSet.lo < lo || subSet.hi > hi)) {
+                throw new IllegalArgumentException("range out of bounds");
+            }
+            return subSet;
+        }
+
+        @Override
+        public IntNavigableSet headSet(Integer toElement, boolean inclusive) {
+            return subSet(lo, true, toElement, inclusive);
+        }
+
+        @Override
+        public IntNavigableSet tailSet(Integer fromElement, boolean inclusive) {
+            return subSet(fromElement, inclusive, hi, true);
+        }
+    }
+
+    /**
+     * A reverse order view of the backing set.
+     */
+    static class DescendingSet extends AbstractIntNavigableSet {
+        private final IntNavigableSet m;
+
+        DescendingSet(IntNavigableSet m) {
+            this.m = m;
+        }
+
+        @Override
+        public int size() {
+            return m.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+
+        @Override
+        public boolean containsInt(int integer) {
+            return m.containsInt(integer);
+        }
+
+        @Override
+        public boolean addInt(int integer) {
+            return m.addInt(integer);
+        }
+
+        @Override
+        public boolean removeInt(int integer) {
+            return m.removeInt(integer);
+        }
+
+        @Override
+        public int firstInt() {
+            return m.lastInt();
+        }
+
+        @Override
+        public int lastInt() {
+            return m.firstInt();
+        }
+
+        @Override
+        public int successor(int integer) {
+            return m.predecessor(integer);
+        }
+
+        @Override
+        public int predecessor(int integer) {
+            return m.successor(integer);
+        }
+
+        @Override
+        public int ceilingInt(int integer) {
+            return m.floorInt(integer);
+        }
+
+        @Override
+        public int floorInt(int integer) {
+            return m.ceilingInt(integer);
+        }
+
+        @Override
+        public Integer lower(Integer integer) {
+            return m.higher(integer);
+        }
+
+        @Override
+        public Integer floor(Integer integer) {
+            return m.ceiling(integer);
+        }
+
+        @Override
+        public Integer ceiling(Integer integer) {
+            return m.floor(integer);
+        }
+
+        @Override
+        public Integer higher(Integer integer) {
+            return m.lower(integer);
+        }
+
+        @Override
+        public Integer pollFirst() {
+            return m.pollLast();
+        }
+
+        @Override
+        public Integer pollLast() {
+            return m.pollFirst();
+        }
+
+        @Override
+        public Comparator<? super Integer> comparator() {
+            return Collections.reverseOrder();
+        }
+
+        @Override
+        public int[] toIntArray() {
+            // ascending, not in the order of this view
+            return m.toIntArray();
+        }
+
+        @Override
+        public int countInRange(int lo, int hi) {
+            return m.countInRange(lo, hi);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+            if (lo > hi) {
+                return Spliterators.iterator(Spliterators.emptyIntSpliterator());
+            }
+            return new SubSet(m, lo, true, hi, true).descendingIterator();
+        }
+
+        @Override
+        public int removeRange(int lo, int hi) {
+            return m.removeRange(lo, hi);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return m.descendingIterator();
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt descendingIterator() {
+            return m.iterator();
+        }
+
+        @Override
+        public Spliterator.OfInt spliterator() {
+            // not SORTED, which would claim the natural order
+            return Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
+        @Override
+        public IntNavigableSet descendingSet() {
+            return m;
+        }
+
+        @Override
+        public IntNavigableSet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+            return m.subSet(toElement, toInclusive, fromElement, fromInclusive).descendingSet();
+        }
+
+        @Override
+        public IntNavigableSet headSet(Integer toElement, boolean inclusive) {
+            return m.tailSet(toElement, inclusive).descendingSet();
+        }
+
+        @Override
+        public IntNavigableSet tailSet(Integer fromElement, boolean inclusive) {
+            return m.headSet(fromElement, inclusive).descendingSet();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package sg.yikjiun.aurora;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
@@ -118,6 +119,93 @@ public class ArrayUtils {
         return nums;
     }
 
+    /**
+     * Returns a sorted array using lsd radix sort on one byte at a time.
+     *
+     * Unlike lsdRadixSort, works on negative integers too.
+     * Time: O(4n)
+     * Space: O(n)
+     * where n is the number of elements in the array to be sorted
+     */
+    @CheckReturnValue
+    public static int[] radixSort(int[] nums) {
+        int n = nums.length;
+        int[] src = Arrays.copyOf(nums, n);
+        if (n == 0) {
+            return src;
+        }
+        int[] dst = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 32; shift += 8) {
+            // flip the sign bit in the last pass so that negative integers come first
+            int flip = shift == 24 ? 0x80 : 0;
+            Arrays.fill(counts, 0);
+            for (int num : src) {
+                ++counts[(num >>> shift & 0xFF ^ flip) + 1];
+            }
+            if (counts[(src[0] >>> shift & 0xFF ^ flip) + 1] == n) {
+                // every element has the same byte here
+                continue;
+            }
+            for (int i = 0; i < 256; ++i) {
+                counts[i + 1] += counts[i];
+            }
+            for (int num : src) {
+                dst[counts[num >>> shift & 0xFF ^ flip]++] = num;
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        return src;
+    }
+
+    /**
+     * Sorts keys[0, n) in place using lsd radix sort on one byte at a time, moving values[i]
+     * along with keys[i].
+     *
+     * The sort is stable, so of equal keys the one that came last stays last, which picks the
+     * latest entry when the arrays hold a log.
+     * Time: O(4n)
+     * Space: O(n)
+     * where n is the number of elements to be sorted
+     */
+    public static void radixSort(int[] keys, int[] values, int n) {
+        int[] srcKeys = keys;
+        int[] srcValues = values;
+        int[] dstKeys = new int[n];
+        int[] dstValues = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 32 && n > 0; shift += 8) {
+            int flip = shift == 24 ? 0x80 : 0;
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; ++i) {
+                ++counts[(srcKeys[i] >>> shift & 0xFF ^ flip) + 1];
+            }
+            if (counts[(srcKeys[0] >>> shift & 0xFF ^ flip) + 1] == n) {
+                continue;
+            }
+            for (int i = 0; i < 256; ++i) {
+                counts[i + 1] += counts[i];
+            }
+            for (int i = 0; i < n; ++i) {
+                int j = counts[srcKeys[i] >>> shift & 0xFF ^ flip]++;
+                dstKeys[j] = srcKeys[i];
+                dstValues[j] = srcValues[i];
+            }
+            int[] tmp = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmp;
+            tmp = srcValues;
+            srcValues = dstValues;
+            dstValues = tmp;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+
     public static void nextPermutation(int[] nums) {
         int n = nums.length;
         int i;
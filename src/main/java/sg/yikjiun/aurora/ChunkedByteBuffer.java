@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * A little endian buffer with long indices, backed by direct or memory mapped byte buffers of
+ * 2^chunkShift bytes each, since a single byte buffer is limited to 2GB.
+ *
+ * Accesses must be aligned to their size so that they never straddle two chunks.
+ *
+ * Direct and mapped memory is otherwise only released when the chunks are garbage collected,
+ * so {@link #close()} releases it right away where the JVM lets it.
+ *
+ * @author Lee Yik Jiun
+ */
+final class ChunkedByteBuffer {
+    // frees a direct or mapped byte buffer, or null if the JVM offers no way to
+    private static final Consumer<ByteBuffer> UNMAPPER = findUnmapper();
+
+    // null once closed
+    private ByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long capacity;
+
+    private ChunkedByteBuffer(ByteBuffer[] chunks, int chunkShift, long capacity) {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        chunkMask = (1L << chunkShift) - 1;
+        this.capacity = capacity;
+    }
+
+    static ChunkedByteBuffer allocateDirect(long capacity, int chunkShift) {
+        ByteBuffer[] chunks = new ByteBuffer[getNumChunks(capacity, chunkShift)];
+        for (int i = 0; i < chunks.length; ++i) {
+            int chunkSize = getChunkSize(capacity, chunkShift, i);
+            chunks[i] = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new ChunkedByteBuffer(chunks, chunkShift, capacity);
+    }
+
+    /**
+     * Maps the first capacity bytes of the channel, which must be open for reading and writing.
+     * The file grows to capacity if it is shorter, and the mappings stay valid after the channel
+     * is closed.
+     */
+    static ChunkedByteBuffer map(FileChannel channel, long capacity, int chunkShift) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[getNumChunks(capacity, chunkShift)];
+        for (int i = 0; i < chunks.length; ++i) {
+            int chunkSize = getChunkSize(capacity, chunkShift, i);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << chunkShift, chunkSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new ChunkedByteBuffer(chunks, chunkShift, capacity);
+    }
+
+    private static Consumer<ByteBuffer> findUnmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return chunk -> invoke(invokeCleaner, unsafe, chunk);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        try {
+            // Java 8
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return chunk -> invoke(clean, invoke(cleaner, chunk));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot unmap", e);
+        }
+    }
+
+    private static int getNumChunks(long capacity, int chunkShift) {
+        return (int) ((capacity + (1L << chunkShift) - 1) >>> chunkShift);
+    }
+
+    private static int getChunkSize(long capacity, int chunkShift, int i) {
+        return (int) Math.min(1L << chunkShift, capacity - ((long) i << chunkShift));
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    int getInt(long index) {
+        assert (index & 3) == 0;
+        return chunks[(int) (index >>> chunkShift)].getInt((int) (index & chunkMask));
+    }
+
+    void putInt(long index, int value) {
+        assert (index & 3) == 0;
+        chunks[(int) (index >>> chunkShift)].putInt((int) (index & chunkMask), value);
+    }
+
+    long getLong(long index) {
+        assert (index & 7) == 0;
+        return chunks[(int) (index >>> chunkShift)].getLong((int) (index & chunkMask));
+    }
+
+    void putLong(long index, long value) {
+        assert (index & 7) == 0;
+        chunks[(int) (index >>> chunkShift)].putLong((int) (index & chunkMask), value);
+    }
+
+    /**
+     * Writes the changes to memory mapped chunks back to their file.
+     */
+    void force() {
+        for (ByteBuffer chunk : chunks) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+    /**
+     * Releases the chunks, after which any access throws instead of touching freed memory. Mapped
+     * chunks are not forced first.
+     */
+    void close() {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks == null) {
+            return;
+        }
+        this.chunks = null;
+        if (UNMAPPER != null) {
+            for (ByteBuffer chunk : chunks) {
+                UNMAPPER.accept(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread-safe van Emde Boas tree over all ints.
+ *
+ * The top level has 2^16 clusters, each a 16-bit {@link IntVanEmdeBoasTreeSet}, and a striped
+ * {@link StampedLock} guards each cluster. Unlike the other sets, the top level keeps no min or
+ * max, so a write only takes the lock of its own cluster. Writes on different stripes then run in
+ * parallel. The summary of the non-empty clusters is an atomic bitmap of 1024 words, which its
+ * writers update while they hold the cluster's lock.
+ *
+ * A second level of 32 atomic words flags the summary words that may be non-empty, so that
+ * isEmpty and a query that moves on to another cluster read at most 32 of those and then the
+ * flagged summary words, instead of scanning up to all 1024 summary words. That is a small
+ * constant rather than the O(log log U) of a full tree of summaries, which would need more levels
+ * kept in step without a lock. The high half of each second level word counts the writers that
+ * set a flag in it. A writer that empties a summary word only clears its flag by a compare and
+ * set, which fails if a flag was set in the meantime, so a flag is never cleared under a
+ * completed add.
+ *
+ * Queries first read a cluster optimistically and validate the stamp afterwards. They take the
+ * read lock only if a writer got in the way. A query that spans clusters reads them one at a
+ * time, so iterators and navigation across clusters are weakly consistent, like those of the
+ * java.util.concurrent collections.
+ *
+ * @author Lee Yik Jiun
+ */
+public class ConcurrentIntVanEmdeBoasTreeSet extends AbstractIntNavigableSet {
+    static final int DEFAULT_NUM_STRIPES = 64;
+    private static final int HALF_NUM_BITS = 16;
+    private static final int NUM_CLUSTERS = 1 << HALF_NUM_BITS;
+    // summary words flagged by each word of the second level, in its low half
+    private static final int WORDS_PER_FLAGS = 32;
+    private static final long FLAGS_MASK = 0xFFFFFFFFL;
+    private static final long VERSION_INCREMENT = 1L << 32;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final IntVanEmdeBoasTreeSet[] clusters = new IntVanEmdeBoasTreeSet[NUM_CLUSTERS];
+    // bit i is set iff cluster i is non-empty
+    private final AtomicLongArray summary = new AtomicLongArray(NUM_CLUSTERS >>> 6);
+    // bit w of the low half is set if summary word w may be non-zero
+    private final AtomicLongArray summaryFlags = new AtomicLongArray((NUM_CLUSTERS >>> 6) / WORDS_PER_FLAGS);
+    private final StampedLock[] stripes;
+    private final int stripeMask;
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentIntVanEmdeBoasTreeSet() {
+        this(DEFAULT_NUM_STRIPES);
+    }
+
+    /**
+     * @param numStripes the number of locks shared by the clusters, a power of two.
+     */
+    public ConcurrentIntVanEmdeBoasTreeSet(int numStripes) {
+        if (numStripes <= 0 || numStripes > NUM_CLUSTERS || Integer.bitCount(numStripes) != 1) {
+            throw new IllegalArgumentException("numStripes must be a power of two up to " + NUM_CLUSTERS
+                + ": " + numStripes);
+        }
+        stripes = new StampedLock[numStripes];
+        for (int i = 0; i < numStripes; ++i) {
+            stripes[i] = new StampedLock();
+        }
+        stripeMask = numStripes - 1;
+    }
+
+    private static int getHigherOrderBits(int i) {
+        return (i ^ Integer.MIN_VALUE) >>> HALF_NUM_BITS;
+    }
+
+    private static int getLowerOrderBits(int i) {
+        return i & (1 << HALF_NUM_BITS) - 1;
+    }
+
+    private static int getBits(int higherOrderBits, int lowerOrderBits) {
+        return (higherOrderBits << HALF_NUM_BITS | lowerOrderBits) ^ Integer.MIN_VALUE;
+    }
+
+    private StampedLock getStripe(int i) {
+        return stripes[i & stripeMask];
+    }
+
+    /**
+     * The size is exact when there are no concurrent writes.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(size.sum(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getNextCluster(0) < 0;
+    }
+
+    @Override
+    public boolean containsInt(int integer) {
+        int j = getLowerOrderBits(integer);
+        return readCluster(getHigherOrderBits(integer), cluster -> cluster.containsInt(j) ? 1 : 0) == 1;
+    }
+
+    @Override
+    public boolean addInt(int integer) {
+        int i = getHigherOrderBits(integer);
+        StampedLock lock = getStripe(i);
+        long stamp = lock.writeLock();
+        try {
+            IntVanEmdeBoasTreeSet cluster = clusters[i];
+            if (cluster == null) {
+                cluster = new IntVanEmdeBoasTreeSet(HALF_NUM_BITS);
+                clusters[i] = cluster;
+            }
+            if (!cluster.addInt(getLowerOrderBits(integer))) {
+                return false;
+            }
+            if (cluster.size() == 1) {
+                summary.accumulateAndGet(i >>> 6, 1L << i, (bits, bit) -> bits | bit);
+                flag(i >>> 6);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        size.increment();
+        return true;
+    }
+
+    @Override
+    public boolean removeInt(int integer) {
+        int i = getHigherOrderBits(integer);
+        StampedLock lock = getStripe(i);
+        long stamp = lock.writeLock();
+        try {
+            IntVanEmdeBoasTreeSet cluster = clusters[i];
+            if (cluster == null || !cluster.removeInt(getLowerOrderBits(integer))) {
+                return false;
+            }
+            if (cluster.isEmpty()
+                && summary.accumulateAndGet(i >>> 6, ~(1L << i), (bits, mask) -> bits & mask) == 0) {
+                unflag(i >>> 6);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        size.decrement();
+        return true;
+    }
+
+    @Override
+    public int firstInt() {
+        return toInt(getCeiling(Integer.MIN_VALUE, true));
+    }
+
+    @Override
+    public int lastInt() {
+        return toInt(getFloor(Integer.MAX_VALUE, true));
+    }
+
+    @Override
+    public int successor(int integer) {
+        return toInt(getCeiling(integer, false));
+    }
+
+    @Override
+    public int predecessor(int integer) {
+        return toInt(getFloor(integer, false));
+    }
+
+    @Override
+    public int ceilingInt(int integer) {
+        return toInt(getCeiling(integer, true));
+    }
+
+    @Override
+    public int floorInt(int integer) {
+        return toInt(getFloor(integer, true));
+    }
+
+    @Override
+    public Integer lower(Integer integer) {
+        return toInteger(getFloor(integer, false));
+    }
+
+    @Override
+    public Integer floor(Integer integer) {
+        return toInteger(getFloor(integer, true));
+    }
+
+    @Override
+    public Integer ceiling(Integer integer) {
+        return toInteger(getCeiling(integer, true));
+    }
+
+    @Override
+    public Integer higher(Integer integer) {
+        return toInteger(getCeiling(integer, false));
+    }
+
+    @Override
+    public Integer pollFirst() {
+        for (long first = getCeiling(Integer.MIN_VALUE, true); first != NONE;
+             first = getCeiling((int) first, false)) {
+            if (removeInt((int) first)) {
+                return (int) first;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Integer pollLast() {
+        for (long last = getFloor(Integer.MAX_VALUE, true); last != NONE; last = getFloor((int) last, false)) {
+            if (removeInt((int) last)) {
+                return (int) last;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] integers = new int[Math.max(size(), 16)];
+        int k = 0;
+        for (PrimitiveIterator.OfInt iterator = iterator(); iterator.hasNext(); ) {
+            if (k == integers.length) {
+                integers = Arrays.copyOf(integers, k << 1);
+            }
+            integers[k++] = iterator.nextInt();
+        }
+        return Arrays.copyOf(integers, k);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new WeaklyConsistentIterator(false);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new WeaklyConsistentIterator(true);
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.DISTINCT
+            | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+    }
+
+    private static int toInt(long integer) {
+        if (integer == NONE) {
+            throw new NoSuchElementException();
+        }
+        return (int) integer;
+    }
+
+    private static Integer toInteger(long integer) {
+        return integer == NONE ? null : (int) integer;
+    }
+
+    /**
+     * Runs a query on cluster i, which it is given only if it exists and is not empty, and
+     * returns NONE otherwise.
+     *
+     * The query first runs without locking and is retried under the read lock if a write to the
+     * stripe overlapped it, in which case it may also have thrown on a cluster halfway through
+     * the write.
+     */
+    private long readCluster(int i, ToLongFunction<IntVanEmdeBoasTreeSet> query) {
+        StampedLock lock = getStripe(i);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long result = query(clusters[i], query);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return query(clusters[i], query);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long query(IntVanEmdeBoasTreeSet cluster, ToLongFunction<IntVanEmdeBoasTreeSet> query) {
+        return cluster == null || cluster.isEmpty() ? NONE : query.applyAsLong(cluster);
+    }
+
+    /**
+     * Returns the smallest element greater than, or equal to if inclusive, the given integer, or
+     * NONE if there is none.
+     */
+    private long getCeiling(int integer, boolean inclusive) {
+        int i = getHigherOrderBits(integer);
+        int j = getLowerOrderBits(integer);
+        long k = readCluster(i, cluster -> {
+            if (inclusive && cluster.containsInt(j)) {
+                return j;
+            }
+            return j < cluster.lastInt() ? cluster.successor(j) : NONE;
+        });
+        if (k != NONE) {
+            return getBits(i, (int) k);
+        }
+        // the next non-empty cluster may have been emptied since the summary was read
+        for (i = getNextCluster(i + 1); i >= 0; i = getNextCluster(i + 1)) {
+            k = readCluster(i, IntVanEmdeBoasTreeSet::firstInt);
+            if (k != NONE) {
+                return getBits(i, (int) k);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the largest element less than, or equal to if inclusive, the given integer, or NONE
+     * if there is none.
+     */
+    private long getFloor(int integer, boolean inclusive) {
+        int i = getHigherOrderBits(integer);
+        int j = getLowerOrderBits(integer);
+        long k = readCluster(i, cluster -> {
+            if (inclusive && cluster.containsInt(j)) {
+                return j;
+            }
+            return j > cluster.firstInt() ? cluster.predecessor(j) : NONE;
+        });
+        if (k != NONE) {
+            return getBits(i, (int) k);
+        }
+        for (i = getPreviousCluster(i - 1); i >= 0; i = getPreviousCluster(i - 1)) {
+            k = readCluster(i, IntVanEmdeBoasTreeSet::lastInt);
+            if (k != NONE) {
+                return getBits(i, (int) k);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Flags summary word w, after a bit was set in it. Always bumps the version, even if the flag
+     * is already set, so that a concurrent {@link #unflag} fails.
+     */
+    private void flag(int w) {
+        summaryFlags.accumulateAndGet(w / WORDS_PER_FLAGS, 1L << (w & WORDS_PER_FLAGS - 1),
+            (flags, flag) -> (flags | flag) + VERSION_INCREMENT);
+    }
+
+    /**
+     * Clears the flag of summary word w, after it was emptied, unless it is no longer empty.
+     */
+    private void unflag(int w) {
+        int f = w / WORDS_PER_FLAGS;
+        long flag = 1L << (w & WORDS_PER_FLAGS - 1);
+        while (true) {
+            // read before the summary word, so that a flag set after that fails the compare and set
+            long flags = summaryFlags.get(f);
+            if ((flags & flag) == 0 || summary.get(w) != 0
+                || summaryFlags.compareAndSet(f, flags, flags & ~flag)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest non-empty cluster index from i on, or -1 if there is none.
+     */
+    private int getNextCluster(int i) {
+        if (i >= NUM_CLUSTERS) {
+            return -1;
+        }
+        int w = i >>> 6;
+        long bits = summary.get(w) & -1L << i;
+        while (bits == 0) {
+            w = getNextWord(w + 1);
+            if (w < 0) {
+                return -1;
+            }
+            // zero if it was emptied since it was flagged
+            bits = summary.get(w);
+        }
+        return w << 6 | Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Returns the largest non-empty cluster index up to i, or -1 if there is none.
+     */
+    private int getPreviousCluster(int i) {
+        if (i < 0) {
+            return -1;
+        }
+        int w = i >>> 6;
+        long bits = summary.get(w) & -1L >>> 63 - (i & 63);
+        while (bits == 0) {
+            w = getPreviousWord(w - 1);
+            if (w < 0) {
+                return -1;
+            }
+            bits = summary.get(w);
+        }
+        return w << 6 | 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    /**
+     * Returns the smallest flagged summary word from w on, or -1 if there is none.
+     */
+    private int getNextWord(int w) {
+        if (w >= summary.length()) {
+            return -1;
+        }
+        int f = w / WORDS_PER_FLAGS;
+        long flags = summaryFlags.get(f) & FLAGS_MASK & -1L << (w & WORDS_PER_FLAGS - 1);
+        while (flags == 0) {
+            if (++f == summaryFlags.length()) {
+                return -1;
+            }
+            flags = summaryFlags.get(f) & FLAGS_MASK;
+        }
+        return f * WORDS_PER_FLAGS + Long.numberOfTrailingZeros(flags);
+    }
+
+    /**
+     * Returns the largest flagged summary word up to w, or -1 if there is none.
+     */
+    private int getPreviousWord(int w) {
+        if (w < 0) {
+            return -1;
+        }
+        int f = w / WORDS_PER_FLAGS;
+        long flags = summaryFlags.get(f) & FLAGS_MASK >>> WORDS_PER_FLAGS - 1 - (w & WORDS_PER_FLAGS - 1);
+        while (flags == 0) {
+            if (--f < 0) {
+                return -1;
+            }
+            flags = summaryFlags.get(f) & FLAGS_MASK;
+        }
+        return f * WORDS_PER_FLAGS + 63 - Long.numberOfLeadingZeros(flags);
+    }
+
+    private class WeaklyConsistentIterator implements PrimitiveIterator.OfInt {
+        private final boolean descending;
+        private long next;
+        private int last;
+        private boolean canRemove = false;
+
+        WeaklyConsistentIterator(boolean descending) {
+            this.descending = descending;
+            next = descending ? getFloor(Integer.MAX_VALUE, true) : getCeiling(Integer.MIN_VALUE, true);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NONE;
+        }
+
+        @Override
+        public int nextInt() {
+            last = toInt(next);
+            next = descending ? getFloor(last, false) : getCeiling(last, false);
+            canRemove = true;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            removeInt(last);
+            canRemove = false;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable van Emde Boas tree packed into four primitive arrays, made by
+ * {@link IntVanEmdeBoasTreeSet#freeze()}. Since nothing changes after construction and every
+ * field is final, it can be shared between threads without locking.
+ *
+ * A node of b bits has clusters of the floor(b / 2) lower order bits, indexed by the ceil(b / 2)
+ * higher order bits. It takes 4 ints in {@link #nodes}: its min, its max, the offset of its
+ * summary in {@link #summaries} and the index of its first child. Only non-empty clusters have a
+ * child, and they are stored contiguously in cluster order, so the child of cluster i is found by
+ * the rank of i in the summary rather than by following a pointer. Clusters of at most
+ * {@link #LEAF_BITS} bits are a single long in {@link #leaves} instead of a node.
+ *
+ * The summary is a bitmap of the non-empty clusters, followed by a bitmap of its non-empty words,
+ * and so on up to a single word, so finding the next non-empty cluster takes a few word scans.
+ * {@link #ranks} holds the number of set bits before each word of the bitmap.
+ *
+ * Unlike {@link IntVanEmdeBoasTreeSet}, min and max are also kept in the clusters, so they are
+ * only there to cut lookups short.
+ *
+ * @author Lee Yik Jiun
+ */
+public final class FrozenIntVanEmdeBoasTreeSet extends AbstractIntNavigableSet {
+    static final int LEAF_BITS = 6;
+    private static final int NODE_INTS = 4;
+    private static final int MIN = 0;
+    private static final int MAX = 1;
+    private static final int SUMMARY = 2;
+    private static final int FIRST_CHILD = 3;
+    private static final int ROOT = 0;
+    // LEVEL_OFFSETS[b][l] is where level l of a summary of 2^b bits starts, relative to the summary
+    private static final int[][] LEVEL_OFFSETS = new int[33][];
+
+    static {
+        for (int b = 0; b <= 32; ++b) {
+            int[] offsets = new int[(Math.max(b, 1) + 5) / 6];
+            int offset = 0;
+            long numWords = Math.max(1L << b >>> 6, 1);
+            for (int l = 0; l < offsets.length; ++l) {
+                offsets[l] = offset;
+                offset += numWords;
+                numWords = Math.max(numWords + 63 >>> 6, 1);
+            }
+            LEVEL_OFFSETS[b] = offsets;
+        }
+    }
+
+    private final int numBits;
+    // Integer.MIN_VALUE for 32 bits, 0 otherwise
+    private final int offset;
+    private final int size;
+    private final int[] nodes;
+    private final long[] summaries;
+    private final int[] ranks;
+    private final long[] leaves;
+
+    /**
+     * @param keys the elements in ascending order, without repeats.
+     */
+    FrozenIntVanEmdeBoasTreeSet(int numBits, int[] keys) {
+        this.numBits = numBits;
+        offset = numBits == 32 ? Integer.MIN_VALUE : 0;
+        size = keys.length;
+        Builder builder = new Builder(keys.length);
+        if (keys.length > 0) {
+            // build over unsigned keys, which sort the same as the keys
+            int[] u = new int[keys.length];
+            for (int k = 0; k < keys.length; ++k) {
+                u[k] = keys[k] - offset;
+            }
+            builder.allocateNodes(1);
+            builder.build(ROOT, numBits, offset, u, 0, u.length);
+        }
+        nodes = Arrays.copyOf(builder.nodes, builder.numNodes * NODE_INTS);
+        summaries = Arrays.copyOf(builder.summaries, builder.numSummaryWords);
+        ranks = Arrays.copyOf(builder.ranks, builder.numSummaryWords);
+        leaves = Arrays.copyOf(builder.leaves, builder.numLeaves);
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsInt(int integer) {
+        if (isEmpty() || integer < nodes[MIN] || integer > nodes[MAX]) {
+            return false;
+        }
+
+        int node = ROOT;
+        int b = numBits;
+        int u = integer - offset;
+        while (true) {
+            int lowerBits = b >> 1;
+            int i = u >>> lowerBits;
+            int base = nodes[node * NODE_INTS + SUMMARY];
+            if ((summaries[base + (i >>> 6)] & 1L << i) == 0) {
+                return false;
+            }
+            int child = nodes[node * NODE_INTS + FIRST_CHILD] + getRank(base, i);
+            u &= (1 << lowerBits) - 1;
+            if (lowerBits <= LEAF_BITS) {
+                return (leaves[child] & 1L << u) != 0;
+            }
+            node = child;
+            b = lowerBits;
+        }
+    }
+
+    @Override
+    public boolean addInt(int integer) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeInt(int integer) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return nodes[MIN];
+    }
+
+    @Override
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return nodes[MAX];
+    }
+
+    @Override
+    public int successor(int integer) {
+        if (isEmpty() || integer >= nodes[MAX]) {
+            throw new NoSuchElementException();
+        }
+        return getCeiling(ROOT, numBits, offset, integer + 1);
+    }
+
+    @Override
+    public int predecessor(int integer) {
+        if (isEmpty() || integer <= nodes[MIN]) {
+            throw new NoSuchElementException();
+        }
+        return getFloor(ROOT, numBits, offset, integer - 1);
+    }
+
+    @Override
+    public int ceilingInt(int integer) {
+        if (isEmpty() || integer > nodes[MAX]) {
+            throw new NoSuchElementException();
+        }
+        return getCeiling(ROOT, numBits, offset, integer);
+    }
+
+    @Override
+    public int floorInt(int integer) {
+        if (isEmpty() || integer < nodes[MIN]) {
+            throw new NoSuchElementException();
+        }
+        return getFloor(ROOT, numBits, offset, integer);
+    }
+
+    /**
+     * Returns the smallest element of the node of b bits that is at least integer, which must be
+     * at most the max of the node. Elements of the root are shifted by offset, and those of the
+     * other nodes are their lower order bits.
+     */
+    private int getCeiling(int node, int b, int offset, int integer) {
+        if (integer <= nodes[node * NODE_INTS + MIN]) {
+            return nodes[node * NODE_INTS + MIN];
+        }
+
+        int lowerBits = b >> 1;
+        int u = integer - offset;
+        int i = u >>> lowerBits;
+        int lowerOrderBits = u & (1 << lowerBits) - 1;
+        int base = nodes[node * NODE_INTS + SUMMARY];
+        int firstChild = nodes[node * NODE_INTS + FIRST_CHILD];
+        if ((summaries[base + (i >>> 6)] & 1L << i) != 0) {
+            int child = firstChild + getRank(base, i);
+            if (lowerBits <= LEAF_BITS) {
+                long bits = leaves[child] & -1L << lowerOrderBits;
+                if (bits != 0) {
+                    return getBits(i, Long.numberOfTrailingZeros(bits), lowerBits, offset);
+                }
+            } else if (lowerOrderBits <= nodes[child * NODE_INTS + MAX]) {
+                return getBits(i, getCeiling(child, lowerBits, 0, lowerOrderBits), lowerBits, offset);
+            }
+        }
+
+        // the max is in a later cluster
+        i = getSummarySuccessor(base, b - lowerBits, i);
+        int child = firstChild + getRank(base, i);
+        int min = lowerBits <= LEAF_BITS
+            ? Long.numberOfTrailingZeros(leaves[child])
+            : nodes[child * NODE_INTS + MIN];
+        return getBits(i, min, lowerBits, offset);
+    }
+
+    /**
+     * Returns the largest element of the node of b bits that is at most integer, which must be at
+     * least the min of the node.
+     */
+    private int getFloor(int node, int b, int offset, int integer) {
+        if (integer >= nodes[node * NODE_INTS + MAX]) {
+            return nodes[node * NODE_INTS + MAX];
+        }
+
+        int lowerBits = b >> 1;
+        int u = integer - offset;
+        int i = u >>> lowerBits;
+        int lowerOrderBits = u & (1 << lowerBits) - 1;
+        int base = nodes[node * NODE_INTS + SUMMARY];
+        int firstChild = nodes[node * NODE_INTS + FIRST_CHILD];
+        if ((summaries[base + (i >>> 6)] & 1L << i) != 0) {
+            int child = firstChild + getRank(base, i);
+            if (lowerBits <= LEAF_BITS) {
+                // -2L << 63 == 0, so this also holds for lowerOrderBits == 63
+                long bits = leaves[child] & ~(-2L << lowerOrderBits);
+                if (bits != 0) {
+                    return getBits(i, 63 - Long.numberOfLeadingZeros(bits), lowerBits, offset);
+                }
+            } else if (lowerOrderBits >= nodes[child * NODE_INTS + MIN]) {
+                return getBits(i, getFloor(child, lowerBits, 0, lowerOrderBits), lowerBits, offset);
+            }
+        }
+
+        // the min is in an earlier cluster
+        i = getSummaryPredecessor(base, b - lowerBits, i);
+        int child = firstChild + getRank(base, i);
+        int max = lowerBits <= LEAF_BITS
+            ? 63 - Long.numberOfLeadingZeros(leaves[child])
+            : nodes[child * NODE_INTS + MAX];
+        return getBits(i, max, lowerBits, offset);
+    }
+
+    private static int getBits(int higherOrderBits, int lowerOrderBits, int lowerBits, int offset) {
+        return (higherOrderBits << lowerBits | lowerOrderBits) + offset;
+    }
+
+    /**
+     * Returns the number of non-empty clusters before cluster i.
+     */
+    private int getRank(int base, int i) {
+        int w = i >>> 6;
+        return ranks[base + w] + Long.bitCount(summaries[base + w] & (1L << i) - 1);
+    }
+
+    /**
+     * Returns the next non-empty cluster after i in a summary of 2^highBits bits, which must exist.
+     */
+    private int getSummarySuccessor(int base, int highBits, int i) {
+        int[] levels = LEVEL_OFFSETS[highBits];
+        int level = 0;
+        long bits;
+        // climb until a word has a set bit after i
+        while ((bits = summaries[base + levels[level] + (i >>> 6)] & -2L << i) == 0) {
+            i >>>= 6;
+            ++level;
+        }
+        i = (i & ~63) | Long.numberOfTrailingZeros(bits);
+        while (level > 0) {
+            --level;
+            i = i << 6 | Long.numberOfTrailingZeros(summaries[base + levels[level] + i]);
+        }
+        return i;
+    }
+
+    /**
+     * Returns the previous non-empty cluster before i, which must exist.
+     */
+    private int getSummaryPredecessor(int base, int highBits, int i) {
+        int[] levels = LEVEL_OFFSETS[highBits];
+        int level = 0;
+        long bits;
+        while ((bits = summaries[base + levels[level] + (i >>> 6)] & (1L << i) - 1) == 0) {
+            i >>>= 6;
+            ++level;
+        }
+        i = (i & ~63) | 63 - Long.numberOfLeadingZeros(bits);
+        while (level > 0) {
+            --level;
+            i = i << 6 | 63 - Long.numberOfLeadingZeros(summaries[base + levels[level] + i]);
+        }
+        return i;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] integers = new int[size];
+        if (size > 0) {
+            int k = toIntArray(integers, 0, ROOT, numBits, offset);
+            assert k == size;
+        }
+        return integers;
+    }
+
+    /**
+     * Writes the elements of the node, shifted by base, from integers[k]. The children are stored
+     * in cluster order, so this is a walk over the arrays. Returns the index after the last one.
+     */
+    private int toIntArray(int[] integers, int k, int node, int b, int base) {
+        int lowerBits = b >> 1;
+        int summary = nodes[node * NODE_INTS + SUMMARY];
+        int child = nodes[node * NODE_INTS + FIRST_CHILD];
+        int numWords = Math.max(1 << b - lowerBits >>> 6, 1);
+        for (int w = 0; w < numWords; ++w) {
+            for (long clusters = summaries[summary + w]; clusters != 0; clusters &= clusters - 1) {
+                int i = w << 6 | Long.numberOfTrailingZeros(clusters);
+                int clusterBase = getBits(i, 0, lowerBits, base);
+                if (lowerBits <= LEAF_BITS) {
+                    for (long bits = leaves[child]; bits != 0; bits &= bits - 1) {
+                        integers[k++] = clusterBase + Long.numberOfTrailingZeros(bits);
+                    }
+                } else {
+                    k = toIntArray(integers, k, child, lowerBits, clusterBase);
+                }
+                ++child;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Lays out the nodes depth first, in arrays that grow as needed and are trimmed at the end.
+     */
+    private static class Builder {
+        int[] nodes;
+        int numNodes;
+        long[] summaries;
+        int[] ranks;
+        int numSummaryWords;
+        long[] leaves;
+        int numLeaves;
+
+        Builder(int size) {
+            nodes = new int[NODE_INTS * 16];
+            summaries = new long[16];
+            ranks = new int[16];
+            leaves = new long[Math.max(size >>> 4, 16)];
+        }
+
+        int allocateNodes(int n) {
+            int node = numNodes;
+            numNodes += n;
+            if (numNodes * NODE_INTS > nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(nodes.length << 1, numNodes * NODE_INTS));
+            }
+            return node;
+        }
+
+        int allocateLeaves(int n) {
+            int leaf = numLeaves;
+            numLeaves += n;
+            if (numLeaves > leaves.length) {
+                leaves = Arrays.copyOf(leaves, Math.max(leaves.length << 1, numLeaves));
+            }
+            return leaf;
+        }
+
+        int allocateSummary(int highBits) {
+            int[] levels = LEVEL_OFFSETS[highBits];
+            int numWords = levels[levels.length - 1] + 1;
+            int base = numSummaryWords;
+            numSummaryWords += numWords;
+            if (numSummaryWords > summaries.length) {
+                int capacity = Math.max(summaries.length << 1, numSummaryWords);
+                summaries = Arrays.copyOf(summaries, capacity);
+                ranks = Arrays.copyOf(ranks, capacity);
+            }
+            return base;
+        }
+
+        /**
+         * Builds the node of b bits holding u[from, to), of which only the lower b bits count.
+         */
+        void build(int node, int b, int offset, int[] u, int from, int to) {
+            int mask = b == 32 ? -1 : (1 << b) - 1;
+            int lowerBits = b >> 1;
+            int highBits = b - lowerBits;
+            int lowerMask = (1 << lowerBits) - 1;
+            int base = allocateSummary(highBits);
+
+            int numClusters = 0;
+            for (int k = from, prev = -1; k < to; ++k) {
+                int i = (u[k] & mask) >>> lowerBits;
+                if (i != prev) {
+                    summaries[base + (i >>> 6)] |= 1L << i;
+                    ++numClusters;
+                    prev = i;
+                }
+            }
+            int[] levels = LEVEL_OFFSETS[highBits];
+            int numWords = Math.max(1 << highBits >>> 6, 1);
+            for (int w = 0, rank = 0; w < numWords; ++w) {
+                ranks[base + w] = rank;
+                rank += Long.bitCount(summaries[base + w]);
+            }
+            for (int l = 1; l < levels.length; ++l) {
+                for (int w = levels[l - 1]; w < levels[l]; ++w) {
+                    if (summaries[base + w] != 0) {
+                        int j = w - levels[l - 1];
+                        summaries[base + levels[l] + (j >>> 6)] |= 1L << j;
+                    }
+                }
+            }
+
+            int firstChild = lowerBits <= LEAF_BITS ? allocateLeaves(numClusters) : allocateNodes(numClusters);
+            int start = node * NODE_INTS;
+            nodes[start + MIN] = (u[from] & mask) + offset;
+            nodes[start + MAX] = (u[to - 1] & mask) + offset;
+            nodes[start + SUMMARY] = base;
+            nodes[start + FIRST_CHILD] = firstChild;
+
+            for (int k = from, child = firstChild; k < to; ++child) {
+                int i = (u[k] & mask) >>> lowerBits;
+                int end = k + 1;
+                while (end < to && (u[end] & mask) >>> lowerBits == i) {
+                    ++end;
+                }
+                if (lowerBits <= LEAF_BITS) {
+                    long bits = 0;
+                    for (int j = k; j < end; ++j) {
+                        bits |= 1L << (u[j] & lowerMask);
+                    }
+                    leaves[child] = bits;
+                } else {
+                    build(child, lowerBits, 0, u, k, end);
+                }
+                k = end;
+            }
+        }
+    }
+}
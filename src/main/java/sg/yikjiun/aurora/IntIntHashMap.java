@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+/**
+ * An open addressing hash map from int keys to non-zero int values, using linear probing, like
+ * {@link IntObjectHashMap} without the boxing.
+ *
+ * A slot is free iff its value is 0, so every int is a valid key and 0 means absent.
+ *
+ * @author Lee Yik Jiun
+ */
+class IntIntHashMap {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+    private int mask;
+
+    IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntIntHashMap(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, DEFAULT_CAPACITY) - 1) << 1;
+        keys = new int[n];
+        values = new int[n];
+        mask = n - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    /**
+     * Returns the value of the key, or 0 if there is none.
+     */
+    int get(int key) {
+        for (int i = slot(key); ; i = i + 1 & mask) {
+            int value = values[i];
+            if (value == 0 || keys[i] == key) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of the key, removing it if the value is 0, and returns the old value.
+     */
+    int put(int key, int value) {
+        if (value == 0) {
+            return remove(key);
+        }
+        int i = slot(key);
+        for (; values[i] != 0; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                int oldValue = values[i];
+                values[i] = value;
+                return oldValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // keep the load factor at most 1/2
+        if (++size << 1 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return 0;
+    }
+
+    int remove(int key) {
+        int i = slot(key);
+        for (; values[i] != 0; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                int oldValue = values[i];
+                shiftBack(i);
+                --size;
+                return oldValue;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Backward shift deletion, so lookups never need tombstones.
+     */
+    private void shiftBack(int free) {
+        for (int i = free + 1 & mask; values[i] != 0; i = i + 1 & mask) {
+            int home = slot(keys[i]);
+            // move the entry into the free slot unless its home lies cyclically in (free, i]
+            if ((i - home & mask) >= (i - free & mask)) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != 0) {
+                    j = j + 1 & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    void clear() {
+        keys = new int[DEFAULT_CAPACITY];
+        values = new int[DEFAULT_CAPACITY];
+        mask = DEFAULT_CAPACITY - 1;
+        size = 0;
+    }
+}
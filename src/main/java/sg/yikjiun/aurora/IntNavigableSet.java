@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link NavigableSet} of ints with primitive counterparts for the methods on the hot path.
+ *
+ * The primitive queries throw {@link NoSuchElementException} where the boxed ones return null.
+ *
+ * @author Lee Yik Jiun
+ */
+public interface IntNavigableSet extends NavigableSet<Integer> {
+    boolean containsInt(int integer);
+
+    boolean addInt(int integer);
+
+    boolean removeInt(int integer);
+
+    /**
+     * Returns the smallest element.
+     *
+     * @throws NoSuchElementException if the set is empty.
+     */
+    int firstInt();
+
+    /**
+     * Returns the largest element.
+     *
+     * @throws NoSuchElementException if the set is empty.
+     */
+    int lastInt();
+
+    /**
+     * Returns the smallest element strictly greater than the given integer.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    int successor(int integer);
+
+    /**
+     * Returns the largest element strictly less than the given integer.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    int predecessor(int integer);
+
+    /**
+     * Returns the smallest element greater than or equal to the given integer.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    int ceilingInt(int integer);
+
+    /**
+     * Returns the largest element less than or equal to the given integer.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    int floorInt(int integer);
+
+    /**
+     * Returns the elements in ascending order, even for a {@link #descendingSet()} view.
+     */
+    int[] toIntArray();
+
+    /**
+     * Returns the number of elements in [lo, hi], or 0 if lo > hi.
+     */
+    int countInRange(int lo, int hi);
+
+    /**
+     * Returns an iterator over the elements in [lo, hi], in the order of the set, which is empty if
+     * lo > hi.
+     */
+    PrimitiveIterator.OfInt rangeIterator(int lo, int hi);
+
+    /**
+     * Removes the elements in [lo, hi] and returns how many were removed.
+     */
+    int removeRange(int lo, int hi);
+
+    /**
+     * Returns an iterator whose {@link PrimitiveIterator.OfInt#nextInt()} does not box.
+     */
+    @Override
+    PrimitiveIterator.OfInt iterator();
+
+    @Override
+    PrimitiveIterator.OfInt descendingIterator();
+
+    @Override
+    Spliterator.OfInt spliterator();
+
+    default IntStream intStream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    default IntStream parallelIntStream() {
+        return StreamSupport.intStream(spliterator(), true);
+    }
+
+    @Override
+    IntNavigableSet descendingSet();
+
+    @Override
+    IntNavigableSet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive);
+
+    @Override
+    IntNavigableSet headSet(Integer toElement, boolean inclusive);
+
+    @Override
+    IntNavigableSet tailSet(Integer fromElement, boolean inclusive);
+}
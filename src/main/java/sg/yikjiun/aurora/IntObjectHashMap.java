@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+/**
+ * An open addressing hash map from int keys to non-null values, using linear probing.
+ *
+ * A slot is free iff its value is null, so every int is a valid key.
+ *
+ * @author Lee Yik Jiun
+ */
+class IntObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+    private int mask;
+
+    IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntObjectHashMap(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, DEFAULT_CAPACITY) - 1) << 1;
+        keys = new int[n];
+        values = new Object[n];
+        mask = n - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of slots, used or not.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = slot(key); ; i = i + 1 & mask) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            }
+            if (keys[i] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        assert value != null;
+        int i = slot(key);
+        for (; values[i] != null; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                V oldValue = (V) values[i];
+                values[i] = value;
+                return oldValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // keep the load factor at most 1/2
+        if (++size << 1 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key);
+        for (; values[i] != null; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                V oldValue = (V) values[i];
+                shiftBack(i);
+                --size;
+                return oldValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Backward shift deletion, so lookups never need tombstones.
+     */
+    private void shiftBack(int free) {
+        for (int i = free + 1 & mask; values[i] != null; i = i + 1 & mask) {
+            int home = slot(keys[i]);
+            // move the entry into the free slot unless its home lies cyclically in (free, i]
+            if ((i - home & mask) >= (i - free & mask)) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = j + 1 & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated bytes taken by the map and its arrays, but not by its values.
+     */
+    long getShallowBytes() {
+        return ObjectSizes.getObjectBytes(2 * ObjectSizes.REFERENCE_BYTES + 2 * Integer.BYTES)
+            + ObjectSizes.getArrayBytes(keys.length, Integer.BYTES)
+            + ObjectSizes.getArrayBytes(values.length, ObjectSizes.REFERENCE_BYTES);
+    }
+
+    void clear() {
+        keys = new int[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+        mask = DEFAULT_CAPACITY - 1;
+        size = 0;
+    }
+
+    /**
+     * Returns the key in slot i, which must be used.
+     */
+    int keyAt(int i) {
+        return keys[i];
+    }
+
+    /**
+     * Returns the value in slot i, or null if the slot is free.
+     */
+    @SuppressWarnings("unchecked")
+    V valueAt(int i) {
+        return (V) values[i];
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes adds and removes from many threads and applies them to an {@link IntVanEmdeBoasTreeSet}
+ * on a single thread, so that writers never contend for a lock on the set.
+ *
+ * Producers put each operation into a lock-free {@link MpscLongRingBuffer}. The applier thread
+ * drains up to a batch of them at a time and sorts the batch by key with a stable radix sort,
+ * so that the last operation on a key wins and the rest are dropped. It then removes and adds the
+ * keys in ascending order, which visits the clusters of the tree one after another instead of
+ * jumping between them, and bulk loads the adds if the set is empty.
+ *
+ * Readers never see the set itself, but the latest {@link FrozenIntVanEmdeBoasTreeSet} snapshot
+ * of it. The applier publishes a new one once the oldest change it holds back is maxStaleness
+ * old, or when {@link #flush()} asks for it. A snapshot costs O(n) to build, so the staleness
+ * bounds how often that cost is paid.
+ *
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasIngestor implements AutoCloseable {
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    static final int DEFAULT_BATCH_SIZE = 4096;
+    static final long DEFAULT_MAX_STALENESS_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // how long the applier sleeps while the buffer is empty
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int ADD = 1;
+    private static final int REMOVE = 0;
+
+    private final IntVanEmdeBoasTreeSet set;
+    private final MpscLongRingBuffer buffer;
+    // only the applier touches these, but they are allocated here so that it cannot fail to get them
+    private final long[] batch;
+    private final int[] keys;
+    private final int[] operations;
+    private final long maxStalenessNanos;
+    private final Thread applier;
+    private volatile FrozenIntVanEmdeBoasTreeSet snapshot;
+    // the number of operations the snapshot reflects
+    private volatile long published = 0;
+    // the number of operations flush wants published
+    private final AtomicLong requested = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public IntVanEmdeBoasIngestor() {
+        this(new IntVanEmdeBoasTreeSet(), DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_STALENESS_NANOS);
+    }
+
+    /**
+     * Starts the applier thread, which owns the set from then on.
+     *
+     * @param set               the set to apply the operations to, which only the applier may
+     *                          touch until {@link #close()} returns.
+     * @param capacity          the number of operations the buffer holds, a power of two.
+     *                          Producers wait while it is full.
+     * @param batchSize         the most operations to sort and apply at a time, at most capacity.
+     * @param maxStalenessNanos how long a change may wait for a snapshot that shows it.
+     */
+    public IntVanEmdeBoasIngestor(IntVanEmdeBoasTreeSet set, int capacity, int batchSize, long maxStalenessNanos) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (batchSize > capacity) {
+            // a drain never returns more than the buffer holds
+            throw new IllegalArgumentException("batchSize " + batchSize + " is greater than capacity " + capacity);
+        }
+        if (maxStalenessNanos < 0) {
+            throw new IllegalArgumentException("maxStalenessNanos must not be negative: " + maxStalenessNanos);
+        }
+        this.set = set;
+        buffer = new MpscLongRingBuffer(capacity);
+        batch = new long[batchSize];
+        keys = new int[batchSize];
+        operations = new int[batchSize];
+        this.maxStalenessNanos = maxStalenessNanos;
+        snapshot = set.freeze();
+        applier = new Thread(this::apply, "IntVanEmdeBoasIngestor-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Queues an add of the key, waiting while the buffer is full.
+     *
+     * @throws IllegalArgumentException if the key is outside the universe of the set.
+     * @throws IllegalStateException    if the ingestor is closed or its applier died.
+     */
+    public void add(int key) {
+        // only reads final fields of the set, so it is safe on any thread
+        if (set.isOutsideUniverse(key)) {
+            throw new IllegalArgumentException(key + " is outside the universe of the set");
+        }
+        put(key, ADD);
+    }
+
+    /**
+     * Queues a remove of the key, waiting while the buffer is full.
+     *
+     * @throws IllegalStateException if the ingestor is closed or its applier died.
+     */
+    public void remove(int key) {
+        put(key, REMOVE);
+    }
+
+    private void put(int key, int operation) {
+        long element = (long) key << 32 | operation;
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("closed");
+            }
+            if (buffer.offer(element)) {
+                return;
+            }
+            // nothing drains a full buffer once the applier is gone
+            if (!applier.isAlive()) {
+                throw new IllegalStateException("applier died");
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Returns the latest snapshot, which shows every change at most about maxStaleness after the
+     * applier took it from the buffer.
+     */
+    public FrozenIntVanEmdeBoasTreeSet snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Waits until a snapshot shows every operation queued before this call.
+     *
+     * @throws IllegalStateException if the ingestor is closed or its applier died before that.
+     */
+    public void flush() {
+        long target = buffer.getTail();
+        requested.accumulateAndGet(target, Math::max);
+        LockSupport.unpark(applier);
+        while (published < target) {
+            if (!applier.isAlive()) {
+                throw new IllegalStateException(closed ? "closed" : "applier died");
+            }
+            LockSupport.parkNanos(IDLE_NANOS);
+        }
+    }
+
+    /**
+     * Applies and publishes the operations queued so far, and stops the applier. Later adds and
+     * removes throw, and ones that race with close may be dropped, so stop the producers first.
+     * If the calling thread is interrupted while it waits, close returns early with the interrupt
+     * status set, and the applier finishes in the background.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(applier);
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply() {
+        long applied = 0;
+        // when the oldest change that no snapshot shows was applied
+        long dirtySince = 0;
+        boolean dirty = false;
+        while (true) {
+            // read before draining, so that nothing queued before close is left behind
+            boolean closing = closed;
+            int n = buffer.drain(batch, batch.length);
+            if (n > 0) {
+                applyBatch(n);
+                applied += n;
+                if (!dirty) {
+                    dirty = true;
+                    dirtySince = System.nanoTime();
+                }
+            }
+
+            if (dirty && (closing && n == 0 || requested.get() > published
+                || System.nanoTime() - dirtySince >= maxStalenessNanos)) {
+                snapshot = set.freeze();
+                published = applied;
+                dirty = false;
+            }
+            if (closing && n == 0 && applied == buffer.getTail()) {
+                return;
+            }
+            if (n == 0) {
+                // but not past the time the next snapshot is due
+                long sleep = IDLE_NANOS;
+                if (dirty) {
+                    sleep = Math.min(sleep, dirtySince + maxStalenessNanos - System.nanoTime());
+                }
+                if (sleep > 0) {
+                    LockSupport.parkNanos(sleep);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the first n operations of the batch. Package-private so that tests can make the
+     * applier fail.
+     */
+    void applyBatch(int n) {
+        for (int k = 0; k < n; ++k) {
+            keys[k] = (int) (batch[k] >> 32);
+            operations[k] = (int) batch[k];
+        }
+        ArrayUtils.radixSort(keys, operations, n);
+
+        // keep the last operation on each key, with the adds packed to the front of keys
+        int numAdds = 0;
+        for (int k = 0; k < n; ++k) {
+            if (k + 1 < n && keys[k + 1] == keys[k]) {
+                continue;
+            }
+            if (operations[k] == ADD) {
+                keys[numAdds++] = keys[k];
+            } else {
+                set.removeInt(keys[k]);
+            }
+        }
+        set.addAllSorted(keys, 0, numAdds);
+    }
+}
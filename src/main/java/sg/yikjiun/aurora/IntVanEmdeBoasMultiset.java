@@ -0,0 +1,277 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted multiset of ints, such as the prices in an order book or the timestamps in a window.
+ *
+ * The distinct keys are kept in an {@link IntVanEmdeBoasTreeSet}, which only ever holds keys
+ * with a count of at least 1, so {@link #successor(int)} and {@link #predecessor(int)} skip keys
+ * that have been removed down to zero for free. A key in the tree has a count of 1 unless it has
+ * an entry in a primitive hash map, so keys that occur once, usually most of them, cost nothing
+ * beyond the tree.
+ *
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasMultiset {
+    private final IntVanEmdeBoasTreeSet keys;
+    // counts of the keys that occur more than once
+    private final IntIntHashMap counts = new IntIntHashMap();
+    private long size = 0;
+
+    public IntVanEmdeBoasMultiset() {
+        this(32);
+    }
+
+    /**
+     * @param numBits the keys must fit in, as for {@link IntVanEmdeBoasTreeSet}.
+     */
+    public IntVanEmdeBoasMultiset(int numBits) {
+        keys = new IntVanEmdeBoasTreeSet(numBits);
+    }
+
+    /**
+     * Returns the number of keys counting multiplicities.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     */
+    public int distinctSize() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        return keys.containsInt(key);
+    }
+
+    /**
+     * Returns the number of times the key occurs, which is 0 if it does not.
+     */
+    public int count(int key) {
+        int count = counts.get(key);
+        if (count != 0) {
+            return count;
+        }
+        return keys.containsInt(key) ? 1 : 0;
+    }
+
+    /**
+     * Adds one occurrence of the key.
+     *
+     * @return the count before.
+     */
+    public int add(int key) {
+        return add(key, 1);
+    }
+
+    /**
+     * Adds n occurrences of the key.
+     *
+     * @return the count before.
+     * @throws IllegalArgumentException if n is negative or the count would overflow an int.
+     */
+    public int add(int key, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative occurrences: " + n);
+        }
+        int count = count(key);
+        if (n == 0) {
+            return count;
+        }
+        if (count > Integer.MAX_VALUE - n) {
+            throw new IllegalArgumentException("Too many occurrences of " + key);
+        }
+        setCount(key, count, count + n);
+        size += n;
+        return count;
+    }
+
+    /**
+     * Removes one occurrence of the key.
+     *
+     * @return whether the key occurred.
+     */
+    public boolean removeOne(int key) {
+        return remove(key, 1) != 0;
+    }
+
+    /**
+     * Removes up to n occurrences of the key.
+     *
+     * @return the count before.
+     * @throws IllegalArgumentException if n is negative.
+     */
+    public int remove(int key, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative occurrences: " + n);
+        }
+        int count = count(key);
+        int removed = Math.min(count, n);
+        if (removed != 0) {
+            setCount(key, count, count - removed);
+            size -= removed;
+        }
+        return count;
+    }
+
+    /**
+     * Removes every occurrence of the key.
+     *
+     * @return the count before.
+     */
+    public int removeAll(int key) {
+        return remove(key, Integer.MAX_VALUE);
+    }
+
+    private void setCount(int key, int oldCount, int newCount) {
+        if (oldCount == 0) {
+            keys.addInt(key);
+        } else if (newCount == 0) {
+            keys.removeInt(key);
+        }
+        if (newCount > 1) {
+            counts.put(key, newCount);
+        } else if (oldCount > 1) {
+            counts.remove(key);
+        }
+    }
+
+    /**
+     * Returns the smallest key.
+     *
+     * @throws NoSuchElementException if the multiset is empty.
+     */
+    public int firstInt() {
+        return keys.firstInt();
+    }
+
+    /**
+     * Returns the largest key.
+     *
+     * @throws NoSuchElementException if the multiset is empty.
+     */
+    public int lastInt() {
+        return keys.lastInt();
+    }
+
+    /**
+     * Returns the smallest key strictly greater than the given integer.
+     *
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public int successor(int integer) {
+        return keys.successor(integer);
+    }
+
+    /**
+     * Returns the largest key strictly less than the given integer.
+     *
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public int predecessor(int integer) {
+        return keys.predecessor(integer);
+    }
+
+    /**
+     * Returns the smallest key greater than or equal to the given integer.
+     *
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public int ceilingInt(int integer) {
+        return keys.ceilingInt(integer);
+    }
+
+    /**
+     * Returns the largest key less than or equal to the given integer.
+     *
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public int floorInt(int integer) {
+        return keys.floorInt(integer);
+    }
+
+    /**
+     * Returns the distinct keys in ascending order.
+     */
+    public int[] toDistinctIntArray() {
+        return keys.toIntArray();
+    }
+
+    /**
+     * Returns the keys in ascending order, each repeated as many times as it occurs.
+     *
+     * @throws IllegalStateException if there are more than Integer.MAX_VALUE keys.
+     */
+    public int[] toIntArray() {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many keys: " + size);
+        }
+        int[] array = new int[(int) size];
+        int i = 0;
+        for (PrimitiveIterator.OfInt iterator = keys.iterator(); iterator.hasNext(); ) {
+            int key = iterator.nextInt();
+            for (int count = count(key); count > 0; --count) {
+                array[i++] = key;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns an iterator over the keys in ascending order, each repeated as many times as it
+     * occurs.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final PrimitiveIterator.OfInt distinct = keys.iterator();
+            private int key;
+            private int remaining = 0;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 || distinct.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                if (remaining == 0) {
+                    key = distinct.nextInt();
+                    remaining = count(key);
+                }
+                --remaining;
+                return key;
+            }
+        };
+    }
+
+    public void clear() {
+        keys.clear();
+        counts.clear();
+        size = 0;
+    }
+}
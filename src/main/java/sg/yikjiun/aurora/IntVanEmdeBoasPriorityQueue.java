@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of non-negative int ids with int priorities, as used by Dijkstra's algorithm
+ * and event schedulers.
+ *
+ * The distinct priorities are kept in an {@link IntVanEmdeBoasTreeSet}, and the ids of each
+ * priority in a doubly linked list threaded through arrays indexed by id. So {@link #peekMin()} is
+ * O(1), and {@link #insert(int, int)}, {@link #extractMin()} and {@link #decreaseKey(int, int)}
+ * are O(log log U), since they only touch the tree when a priority gains its first id or loses
+ * its last. Ids of the same priority come out in the order they went in.
+ *
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasPriorityQueue {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    private final IntVanEmdeBoasTreeSet priorities;
+    // maps each priority in the tree to its ids
+    private final IntObjectHashMap<Bucket> buckets = new IntObjectHashMap<>();
+    // emptied buckets, chained through next, for reuse
+    private Bucket freeBuckets;
+    private int size = 0;
+    // indexed by id
+    private boolean[] queued;
+    private int[] priorityOf;
+    private int[] next;
+    private int[] prev;
+
+    public IntVanEmdeBoasPriorityQueue() {
+        this(32, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param numBits  the priorities must fit in, as for {@link IntVanEmdeBoasTreeSet}.
+     * @param capacity the expected number of ids, which are taken to be in [0, capacity).
+     */
+    public IntVanEmdeBoasPriorityQueue(int numBits, int capacity) {
+        priorities = new IntVanEmdeBoasTreeSet(numBits);
+        capacity = Math.max(capacity, 1);
+        queued = new boolean[capacity];
+        priorityOf = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+    }
+
+    private static class Bucket {
+        int head;
+        int tail;
+        Bucket nextFree;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < queued.length && queued[id];
+    }
+
+    /**
+     * @throws NoSuchElementException if the id is not queued.
+     */
+    public int getPriority(int id) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("Not queued: " + id);
+        }
+        return priorityOf[id];
+    }
+
+    /**
+     * Adds an id with the given priority.
+     *
+     * @throws IllegalArgumentException if the id is negative or already queued, or if the priority does not fit in
+     *                                  numBits.
+     */
+    public void insert(int id, int priority) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        if (contains(id)) {
+            throw new IllegalArgumentException("Already queued: " + id);
+        }
+        checkPriority(priority);
+        if (id >= queued.length) {
+            grow(id + 1);
+        }
+        link(id, priority);
+        ++size;
+    }
+
+    /**
+     * Returns the smallest priority.
+     *
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int peekMin() {
+        return priorities.firstInt();
+    }
+
+    /**
+     * Returns the id that {@link #extractMin()} would remove.
+     *
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int peekMinId() {
+        return buckets.get(priorities.firstInt()).head;
+    }
+
+    /**
+     * Removes and returns the first id of the smallest priority.
+     *
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int extractMin() {
+        int id = peekMinId();
+        unlink(id);
+        --size;
+        return id;
+    }
+
+    /**
+     * Lowers the priority of a queued id. The id goes after the ids already at its new priority.
+     *
+     * @throws NoSuchElementException   if the id is not queued.
+     * @throws IllegalArgumentException if the priority is greater than the current one or does not fit in numBits.
+     */
+    public void decreaseKey(int id, int priority) {
+        int current = getPriority(id);
+        if (priority > current) {
+            throw new IllegalArgumentException("Priority " + priority + " is greater than " + current);
+        }
+        checkPriority(priority);
+        if (priority < current) {
+            unlink(id);
+            link(id, priority);
+        }
+    }
+
+    /**
+     * Removes an id, whatever its priority.
+     *
+     * @return whether the id was queued.
+     */
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        unlink(id);
+        --size;
+        return true;
+    }
+
+    public void clear() {
+        while (!isEmpty()) {
+            extractMin();
+        }
+    }
+
+    /**
+     * Rejects a priority outside the universe before link or unlink touches anything.
+     */
+    private void checkPriority(int priority) {
+        if (priorities.isOutsideUniverse(priority)) {
+            throw new IllegalArgumentException(priority + " is outside the universe of the queue");
+        }
+    }
+
+    /**
+     * Appends the id to the list of its priority.
+     */
+    private void link(int id, int priority) {
+        queued[id] = true;
+        priorityOf[id] = priority;
+        next[id] = NONE;
+        Bucket bucket = buckets.get(priority);
+        if (bucket == null) {
+            bucket = newBucket();
+            bucket.head = id;
+            prev[id] = NONE;
+            buckets.put(priority, bucket);
+            priorities.addInt(priority);
+        } else {
+            next[bucket.tail] = id;
+            prev[id] = bucket.tail;
+        }
+        bucket.tail = id;
+    }
+
+    private void unlink(int id) {
+        queued[id] = false;
+        int priority = priorityOf[id];
+        Bucket bucket = buckets.get(priority);
+        if (prev[id] == NONE) {
+            bucket.head = next[id];
+        } else {
+            next[prev[id]] = next[id];
+        }
+        if (next[id] == NONE) {
+            bucket.tail = prev[id];
+        } else {
+            prev[next[id]] = prev[id];
+        }
+        if (bucket.head == NONE) {
+            buckets.remove(priority);
+            priorities.removeInt(priority);
+            bucket.nextFree = freeBuckets;
+            freeBuckets = bucket;
+        }
+    }
+
+    private Bucket newBucket() {
+        Bucket bucket = freeBuckets;
+        if (bucket == null) {
+            return new Bucket();
+        }
+        freeBuckets = bucket.nextFree;
+        bucket.nextFree = null;
+        return bucket;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(queued.length << 1, minCapacity);
+        queued = Arrays.copyOf(queued, capacity);
+        priorityOf = Arrays.copyOf(priorityOf, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A timer for tasks with int tick deadlines, such as timeouts in milliseconds since some epoch,
+ * that stays fast with millions of timeouts pending.
+ *
+ * The distinct deadlines are kept in an {@link IntVanEmdeBoasTreeSet}, and the timeouts of each
+ * deadline in a linked list whose head is found by deadline in a primitive hash map. So
+ * {@link #nextDeadline()} is O(1), and {@link #schedule(int, Object)} and
+ * {@link Timeout#cancel()} are O(1) unless the deadline gains its first timeout or loses its
+ * last, when they are O(log log U). {@link #expire(int, Consumer)} finds the due deadlines by
+ * walking successors from the first and drops them all from the tree with one removeRange.
+ *
+ * Unlike a hashed wheel, the timer has no tick of its own, so deadlines may be any distance
+ * ahead and ticks without deadlines cost nothing: the thread that owns the timer sleeps until
+ * {@link #nextDeadline()} and then calls {@link #expire(int, Consumer)}. The timer is not thread
+ * safe, so other threads hand their requests to that thread.
+ *
+ * @param <T> the type of the tasks.
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasTimer<T> {
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+
+    private final IntVanEmdeBoasTreeSet deadlines;
+    // maps each deadline in the tree to its first timeout, whose prev is the last
+    private final IntObjectHashMap<Timeout<T>> heads = new IntObjectHashMap<>();
+    private int size = 0;
+
+    public IntVanEmdeBoasTimer() {
+        this(32);
+    }
+
+    /**
+     * @param numBits the deadlines must fit in, as for {@link IntVanEmdeBoasTreeSet}.
+     */
+    public IntVanEmdeBoasTimer(int numBits) {
+        deadlines = new IntVanEmdeBoasTreeSet(numBits);
+    }
+
+    /**
+     * A scheduled task, which can be cancelled until it expires.
+     */
+    public static final class Timeout<T> {
+        private final IntVanEmdeBoasTimer<T> timer;
+        private final int deadline;
+        private final T task;
+        private int state = PENDING;
+        // the timeouts of the same deadline, in the order they were scheduled
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        Timeout(IntVanEmdeBoasTimer<T> timer, int deadline, T task) {
+            this.timer = timer;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public int getDeadline() {
+            return deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public boolean isPending() {
+            return state == PENDING;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        /**
+         * Cancels the timeout if it is still pending.
+         *
+         * @return whether it was pending.
+         */
+        public boolean cancel() {
+            if (state != PENDING) {
+                return false;
+            }
+            state = CANCELLED;
+            timer.unlink(this);
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout{deadline=" + deadline + ", task=" + task + '}';
+        }
+    }
+
+    /**
+     * Returns the number of pending timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the earliest deadline of the pending timeouts.
+     *
+     * @throws NoSuchElementException if there are none.
+     */
+    public int nextDeadline() {
+        return deadlines.firstInt();
+    }
+
+    /**
+     * Schedules the task to expire at the deadline, after the tasks already scheduled for it.
+     *
+     * @throws IllegalArgumentException if the deadline does not fit in numBits.
+     */
+    public Timeout<T> schedule(int deadline, T task) {
+        Timeout<T> timeout = new Timeout<>(this, deadline, task);
+        Timeout<T> head = heads.get(deadline);
+        if (head == null) {
+            // before the hash map, so that a deadline outside the universe changes nothing
+            deadlines.addInt(deadline);
+            timeout.prev = timeout;
+            heads.put(deadline, timeout);
+        } else {
+            Timeout<T> tail = head.prev;
+            tail.next = timeout;
+            timeout.prev = tail;
+            head.prev = timeout;
+        }
+        ++size;
+        return timeout;
+    }
+
+    /**
+     * Expires the timeouts with deadlines up to now and passes their tasks to action, in deadline
+     * order and in the order they were scheduled within a deadline.
+     *
+     * All of them are taken out of the timer before the first task runs, so a task may schedule
+     * and cancel timeouts, but cannot cancel one of the same batch. Timeouts it schedules at or
+     * before now wait for the next call. If a task throws, the tasks after it do not run.
+     *
+     * @return the number of timeouts expired.
+     */
+    public int expire(int now, Consumer<? super T> action) {
+        int oldSize = size;
+        for (Timeout<T> timeout = detach(now, EXPIRED); timeout != null; ) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            action.accept(timeout.task);
+            timeout = next;
+        }
+        return oldSize - size;
+    }
+
+    /**
+     * Cancels every pending timeout.
+     */
+    public void clear() {
+        if (!isEmpty()) {
+            for (Timeout<T> timeout = detach(deadlines.lastInt(), CANCELLED); timeout != null; ) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Takes the timeouts with deadlines up to now out of the timer, moves them to the given state
+     * and returns them chained through next in deadline order.
+     */
+    private Timeout<T> detach(int now, int state) {
+        if (isEmpty() || deadlines.firstInt() > now) {
+            return null;
+        }
+
+        Timeout<T> first = null;
+        Timeout<T> last = null;
+        int firstDeadline = deadlines.firstInt();
+        int lastDeadline = deadlines.lastInt();
+        int deadline = firstDeadline;
+        while (true) {
+            Timeout<T> head = heads.remove(deadline);
+            if (first == null) {
+                first = head;
+            } else {
+                last.next = head;
+            }
+            for (Timeout<T> timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.state = state;
+                last = timeout;
+                --size;
+            }
+            if (deadline == lastDeadline) {
+                break;
+            }
+            int successor = deadlines.successor(deadline);
+            if (successor > now) {
+                break;
+            }
+            deadline = successor;
+        }
+        deadlines.removeRange(firstDeadline, deadline);
+        return first;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        int deadline = timeout.deadline;
+        Timeout<T> head = heads.get(deadline);
+        if (timeout == head) {
+            if (timeout.next == null) {
+                heads.remove(deadline);
+                deadlines.removeInt(deadline);
+            } else {
+                // the new head takes over the link to the last
+                timeout.next.prev = timeout.prev;
+                heads.put(deadline, timeout.next);
+            }
+        } else {
+            timeout.prev.next = timeout.next;
+            if (timeout.next == null) {
+                head.prev = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        --size;
+    }
+}
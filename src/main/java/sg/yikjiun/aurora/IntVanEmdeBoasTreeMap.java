@@ -0,0 +1,277 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sg.yikjiun.aurora;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A sorted map from int keys to non-null values, such as order ids to orders, with floor and
+ * ceiling lookups in O(log log U) and no boxed keys.
+ *
+ * The keys are kept in an {@link IntVanEmdeBoasTreeSet} and the values in a primitive hash map
+ * beside it, so {@link #get(int)} is a single probe and ordered lookups walk the tree and then
+ * probe once for the value.
+ *
+ * @param <V> the type of the values.
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasTreeMap<V> {
+    private final IntVanEmdeBoasTreeSet keys;
+    private final IntObjectHashMap<V> values = new IntObjectHashMap<>();
+
+    public IntVanEmdeBoasTreeMap() {
+        this(32);
+    }
+
+    /**
+     * @param numBits the keys must fit in, as for {@link IntVanEmdeBoasTreeSet}.
+     */
+    public IntVanEmdeBoasTreeMap(int numBits) {
+        keys = new IntVanEmdeBoasTreeSet(numBits);
+    }
+
+    /**
+     * A key and its value, as returned by the ordered lookups. Unlike {@link java.util.Map.Entry}
+     * the key is not boxed.
+     */
+    public static final class Entry<V> {
+        private final int key;
+        private final V value;
+
+        Entry(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?> entry = (Entry<?>) o;
+            return key == entry.key && value.equals(entry.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return key ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    public boolean containsKey(int key) {
+        return values.get(key) != null;
+    }
+
+    /**
+     * Returns the value of the key, or null if there is none.
+     */
+    public V get(int key) {
+        return values.get(key);
+    }
+
+    /**
+     * @return the old value of the key, or null if there was none.
+     * @throws NullPointerException     if the value is null.
+     * @throws IllegalArgumentException if the key does not fit in numBits.
+     */
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        // before the hash map, so that a key outside the universe changes nothing
+        if (keys.isOutsideUniverse(key)) {
+            throw new IllegalArgumentException(key + " is outside the universe of the map");
+        }
+        V oldValue = values.put(key, value);
+        if (oldValue == null) {
+            keys.addInt(key);
+        }
+        return oldValue;
+    }
+
+    /**
+     * @return the value of the key, or null if there was none.
+     */
+    public V remove(int key) {
+        V oldValue = values.remove(key);
+        if (oldValue != null) {
+            keys.removeInt(key);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Returns the smallest key.
+     *
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public int firstKey() {
+        return keys.firstInt();
+    }
+
+    /**
+     * Returns the largest key.
+     *
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public int lastKey() {
+        return keys.lastInt();
+    }
+
+    /**
+     * Returns the entry of the smallest key, or null if the map is empty.
+     */
+    public Entry<V> firstEntry() {
+        return isEmpty() ? null : getEntry(keys.firstInt());
+    }
+
+    /**
+     * Returns the entry of the largest key, or null if the map is empty.
+     */
+    public Entry<V> lastEntry() {
+        return isEmpty() ? null : getEntry(keys.lastInt());
+    }
+
+    /**
+     * Returns the entry of the largest key less than or equal to the given key, or null if there
+     * is none.
+     */
+    public Entry<V> floorEntry(int key) {
+        if (isEmpty() || key < keys.firstInt()) {
+            return null;
+        }
+        return getEntry(keys.floorInt(key));
+    }
+
+    /**
+     * Returns the entry of the smallest key greater than or equal to the given key, or null if
+     * there is none.
+     */
+    public Entry<V> ceilingEntry(int key) {
+        if (isEmpty() || key > keys.lastInt()) {
+            return null;
+        }
+        return getEntry(keys.ceilingInt(key));
+    }
+
+    /**
+     * Returns the entry of the largest key strictly less than the given key, or null if there is
+     * none.
+     */
+    public Entry<V> lowerEntry(int key) {
+        if (isEmpty() || key <= keys.firstInt()) {
+            return null;
+        }
+        return getEntry(keys.predecessor(key));
+    }
+
+    /**
+     * Returns the entry of the smallest key strictly greater than the given key, or null if there
+     * is none.
+     */
+    public Entry<V> higherEntry(int key) {
+        if (isEmpty() || key >= keys.lastInt()) {
+            return null;
+        }
+        return getEntry(keys.successor(key));
+    }
+
+    private Entry<V> getEntry(int key) {
+        return new Entry<>(key, values.get(key));
+    }
+
+    /**
+     * Returns the keys in ascending order.
+     */
+    public int[] keysToIntArray() {
+        return keys.toIntArray();
+    }
+
+    /**
+     * Returns an iterator over the keys in ascending order, which does not support removal.
+     */
+    public PrimitiveIterator.OfInt keyIterator() {
+        PrimitiveIterator.OfInt iterator = keys.iterator();
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return iterator.nextInt();
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the entries in ascending order of key, which does not support
+     * removal.
+     */
+    public Iterator<Entry<V>> entryIterator() {
+        PrimitiveIterator.OfInt iterator = keys.iterator();
+        return new Iterator<Entry<V>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<V> next() {
+                return getEntry(iterator.nextInt());
+            }
+        };
+    }
+
+    /**
+     * Passes each value and its key to the action in ascending order of key, without allocating.
+     */
+    public void forEach(ObjIntConsumer<? super V> action) {
+        for (PrimitiveIterator.OfInt iterator = keys.iterator(); iterator.hasNext(); ) {
+            int key = iterator.nextInt();
+            action.accept(values.get(key), key);
+        }
+    }
+
+    public void clear() {
+        keys.clear();
+        values.clear();
+    }
+}
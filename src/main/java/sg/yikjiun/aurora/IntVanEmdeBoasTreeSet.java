@@ -0,0 +1,1916 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+
+/**
+ * Clusters of at most {@link #LEAF_BITS} bits are not recursed into but kept as a single long
+ * bitmap each in {@link #leaves}, and so is the auxiliary summary in {@link #auxiliaryBits}.
+ *
+ * A 32-bit set takes any int. Cluster indices are computed from the integer minus
+ * Integer.MIN_VALUE, which flips the sign bit so that unsigned cluster order matches signed int
+ * order, while min and max are kept as the ints themselves.
+ *
+ * A node of n bits splits its keys into n / 2 lower order bits, rounded down, and the rest as the
+ * cluster index, so an odd n gives the clusters the extra bit. A set made by
+ * {@link #forRange(int, int)} is rebased by its lowest key instead, and its root only has as many
+ * clusters as the range needs.
+ *
+ * With a positive dense fill ratio, the children of a node start out in a hash map holding only
+ * the non-empty clusters, and move to a dense array once more than that fraction of the slots is
+ * used. Sparse key sets then pay for their clusters rather than for the universe.
+ *
+ * With a positive pool capacity, clusters that empty out or are dropped are kept for reuse by the
+ * same set instead of being left to the garbage collector, which helps workloads that keep
+ * filling and emptying clusters, such as sliding windows.
+ *
+ * @author Lee Yik Jiun
+ */
+public final class IntVanEmdeBoasTreeSet extends AbstractIntNavigableSet {
+    static final int LEAF_BITS = 6;
+    // "vEBS"
+    static final int MAGIC = 0x76454253;
+    // 7 ints, a float, a long and 5 references
+    private static final long NODE_BYTES = ObjectSizes.getObjectBytes(
+        7 * Integer.BYTES + Float.BYTES + Long.BYTES + 5 * ObjectSizes.REFERENCE_BYTES);
+
+    private int size = 0;
+    private int max = Integer.MIN_VALUE;
+    private int min = Integer.MAX_VALUE;
+    // numBits - halfNumBits > LEAF_BITS
+    private IntVanEmdeBoasTreeSet auxiliary;
+    private IntVanEmdeBoasTreeSet[] children;
+    private IntObjectHashMap<IntVanEmdeBoasTreeSet> sparseChildren;
+    // numBits - halfNumBits <= LEAF_BITS
+    private long auxiliaryBits;
+    private long[] leaves;
+    private final int numBits;
+    // the number of lower order bits
+    private final int halfNumBits;
+    private final float denseFillRatio;
+    // Integer.MIN_VALUE for 32 bits, 0 otherwise, or the lowest key of a range
+    private final int offset;
+    // the largest key minus offset, as an unsigned int
+    private final int maxUnsigned;
+    // shared by all the nodes of a set, null if pooling is off
+    private final Pool pool;
+
+    public IntVanEmdeBoasTreeSet() {
+        this(32);
+    }
+
+    public IntVanEmdeBoasTreeSet(int numBits) {
+        this(numBits, 0);
+    }
+
+    /**
+     * @param denseFillRatio the fraction of non-empty clusters above which a node switches from a
+     *                       sparse hash map of children to a dense array. 0 always uses the array.
+     */
+    public IntVanEmdeBoasTreeSet(int numBits, float denseFillRatio) {
+        this(numBits, denseFillRatio, 0);
+    }
+
+    /**
+     * @param poolCapacity the number of emptied clusters of each size to keep for reuse. 0 turns
+     *                     pooling off.
+     */
+    public IntVanEmdeBoasTreeSet(int numBits, float denseFillRatio, int poolCapacity) {
+        this(numBits, denseFillRatio, poolCapacity > 0 ? new Pool(poolCapacity) : null);
+        if (numBits < 1 || numBits > 32) {
+            throw new IllegalArgumentException("numBits must be in [1, 32]: " + numBits);
+        }
+        if (denseFillRatio < 0 || denseFillRatio > 1) {
+            throw new IllegalArgumentException("denseFillRatio must be in [0, 1]: " + denseFillRatio);
+        }
+        if (poolCapacity < 0) {
+            throw new IllegalArgumentException("poolCapacity must not be negative: " + poolCapacity);
+        }
+    }
+
+    private IntVanEmdeBoasTreeSet(int numBits, float denseFillRatio, Pool pool) {
+        this(numBits, numBits == 32 ? Integer.MIN_VALUE : 0, (int) ((1L << numBits) - 1), denseFillRatio, pool);
+    }
+
+    private IntVanEmdeBoasTreeSet(int numBits, int offset, int maxUnsigned, float denseFillRatio, Pool pool) {
+        this.numBits = numBits;
+        halfNumBits = numBits >> 1;
+        this.denseFillRatio = denseFillRatio;
+        this.offset = offset;
+        this.maxUnsigned = maxUnsigned;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns a set for keys in [0, universeSize), or for any int if universeSize is 2^32, sized
+     * as by {@link #forRange(int, int)}.
+     *
+     * @throws IllegalArgumentException if universeSize is not in [1, 2^31] or 2^32.
+     */
+    public static IntVanEmdeBoasTreeSet withUniverseSize(long universeSize) {
+        if (universeSize < 1 || universeSize > 1L << 31 && universeSize != 1L << 32) {
+            throw new IllegalArgumentException("universeSize must be in [1, 2^31] or 2^32: " + universeSize);
+        }
+        if (universeSize == 1L << 32) {
+            return new IntVanEmdeBoasTreeSet();
+        }
+        return forRange(0, (int) (universeSize - 1));
+    }
+
+    /**
+     * Returns a set for keys in [lo, hi]. Keys are rebased by lo, and the root has the fewest
+     * bits that span the range, split as in any other node, with only as many clusters as keys up
+     * to hi need, so a range of a few million keys has a root array of a few thousand slots
+     * rather than the 65536 of a 32-bit set.
+     *
+     * @throws IllegalArgumentException if lo > hi.
+     */
+    public static IntVanEmdeBoasTreeSet forRange(int lo, int hi) {
+        if (lo > hi) {
+            throw new IllegalArgumentException("lo > hi: " + lo + " > " + hi);
+        }
+        int maxUnsigned = hi - lo;
+        int numBits = Math.max(32 - Integer.numberOfLeadingZeros(maxUnsigned), 2);
+        return new IntVanEmdeBoasTreeSet(numBits, lo, maxUnsigned, 0, null);
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return containsInt((int) o);
+    }
+
+    @Override
+    public boolean containsInt(int integer) {
+        // also false for keys outside the universe, and if the set is empty
+        if (integer < min || integer > max) {
+            return false;
+        }
+
+        if (integer == min || integer == max) {
+            return true;
+        }
+
+        if (isAuxiliaryEmpty()) {
+            return false;
+        }
+
+        return containsInCluster(getHigherOrderBits(integer), getLowerOrderBits(integer));
+    }
+
+    private int getLowerOrderBits(int i) {
+        return i - offset & (1 << halfNumBits) - 1;
+    }
+
+    private int getHigherOrderBits(int i) {
+        return i - offset >>> halfNumBits;
+    }
+
+    boolean isOutsideUniverse(int i) {
+        return Integer.compareUnsigned(i - offset, maxUnsigned) > 0;
+    }
+
+    private int getNumClusters() {
+        return (maxUnsigned >>> halfNumBits) + 1;
+    }
+
+    @Override
+    public boolean add(Integer integer) {
+        return addInt(integer);
+    }
+
+    @Override
+    public boolean addInt(int integer) {
+        if (isOutsideUniverse(integer)) {
+            throw new IllegalArgumentException(integer + " is outside the universe of the set");
+        }
+        if (size == 0) {
+            min = max = integer;
+            ++size;
+            return true;
+        }
+
+        int cmpMin = Integer.compare(integer, min);
+        int cmpMax = Integer.compare(integer, max);
+        int idx = 3 * (cmpMin + 1) + (cmpMax + 1);
+        switch (idx) {
+            case 0:
+                switch (Integer.compare(min, max)) {
+                    case -1:
+                        int tmp = integer;
+                        integer = min;
+                        min = tmp;
+                        break;
+                    case 0:
+                        min = integer;
+                        ++size;
+                        return true;
+                    case 1:
+                        return false;
+                }
+                break;
+            case 6:
+                break;
+            case 8:
+                switch (Integer.compare(min, max)) {
+                    case -1:
+                        int tmp = integer;
+                        integer = max;
+                        max = tmp;
+                        break;
+                    case 0:
+                        max = integer;
+                        ++size;
+                        return true;
+                    case 1:
+                        return false;
+                }
+                break;
+            default:
+                // equal to min or max
+                return false;
+        }
+        if (!addToCluster(getHigherOrderBits(integer), getLowerOrderBits(integer))) {
+            return false;
+        }
+        ++size;
+        return true;
+    }
+
+    private IntVanEmdeBoasTreeSet newIntVanEmdeBoasTreeSet() {
+        return newNode(halfNumBits);
+    }
+
+    /**
+     * Returns an empty summary of the cluster indices, which have the remaining bits.
+     */
+    private IntVanEmdeBoasTreeSet newAuxiliary() {
+        return newNode(numBits - halfNumBits);
+    }
+
+    private IntVanEmdeBoasTreeSet newNode(int numBits) {
+        if (pool != null) {
+            IntVanEmdeBoasTreeSet node = pool.poll(numBits);
+            if (node != null) {
+                return node;
+            }
+        }
+        return new IntVanEmdeBoasTreeSet(numBits, denseFillRatio, pool);
+    }
+
+    private IntVanEmdeBoasTreeSet[] newChildren() {
+        return new IntVanEmdeBoasTreeSet[getNumClusters()];
+    }
+
+    private long[] newLeaves() {
+        return new long[getNumClusters()];
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeInt((int) o);
+    }
+
+    @Override
+    public boolean removeInt(int integer) {
+        if (min > max || integer < min || integer > max) {
+            return false;
+        }
+
+        if (min == integer && integer == max) {
+            min = Integer.MAX_VALUE;
+            max = Integer.MIN_VALUE;
+            --size;
+            assert isEmpty();
+            return true;
+        }
+
+        int i;
+        if (integer == min) {
+            if (isAuxiliaryEmpty()) {
+                min = max;
+                --size;
+                return true;
+            } else {
+                i = getAuxiliaryMin();
+                integer = getClusterMin(i);
+                min = getBits(i, integer);
+            }
+        } else if (integer == max) {
+            if (isAuxiliaryEmpty()) {
+                max = min;
+                --size;
+                return true;
+            } else {
+                i = getAuxiliaryMax();
+                integer = getClusterMax(i);
+                max = getBits(i, integer);
+            }
+        } else if (isAuxiliaryEmpty()) {
+            return false;
+        } else {
+            i = getHigherOrderBits(integer);
+            integer = getLowerOrderBits(integer);
+        }
+
+        if (!removeFromCluster(i, integer)) {
+            return false;
+        }
+        --size;
+        return true;
+    }
+
+    private int getBits(int higherOrderBits, int lowerOrderBits) {
+        return (higherOrderBits << halfNumBits | lowerOrderBits) + offset;
+    }
+
+    @Override
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return min;
+    }
+
+    @Override
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return max;
+    }
+
+    @Override
+    public int successor(int integer) {
+        if (isEmpty() || integer >= max) {
+            throw new NoSuchElementException();
+        }
+        return getSuccessor(integer);
+    }
+
+    /**
+     * Requires integer < max, so there is always an answer and no sentinel is needed.
+     */
+    private int getSuccessor(int integer) {
+        if (integer < min) {
+            return min;
+        }
+
+        if (!isAuxiliaryEmpty()) {
+            int i = getHigherOrderBits(integer);
+            int lowerOrderBits = getLowerOrderBits(integer);
+            if (isClusterNonEmpty(i) && lowerOrderBits < getClusterMax(i)) {
+                return getBits(i, getClusterSuccessor(i, lowerOrderBits));
+            }
+            if (i < getAuxiliaryMax()) {
+                i = getAuxiliarySuccessor(i);
+                return getBits(i, getClusterMin(i));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public int predecessor(int integer) {
+        if (isEmpty() || integer <= min) {
+            throw new NoSuchElementException();
+        }
+        return getPredecessor(integer);
+    }
+
+    /**
+     * Requires integer > min, so there is always an answer and no sentinel is needed.
+     */
+    private int getPredecessor(int integer) {
+        if (integer > max) {
+            return max;
+        }
+
+        if (!isAuxiliaryEmpty()) {
+            int i = getHigherOrderBits(integer);
+            int lowerOrderBits = getLowerOrderBits(integer);
+            if (isClusterNonEmpty(i) && lowerOrderBits > getClusterMin(i)) {
+                return getBits(i, getClusterPredecessor(i, lowerOrderBits));
+            }
+            if (i > getAuxiliaryMin()) {
+                i = getAuxiliaryPredecessor(i);
+                return getBits(i, getClusterMax(i));
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] integers = new int[size];
+        int n = toIntArray(integers, 0, 0);
+        assert n == size;
+        return integers;
+    }
+
+    /**
+     * Writes the elements, shifted by base, in ascending order from integers[k] by walking the
+     * clusters in order. Returns the index after the last element written.
+     */
+    private int toIntArray(int[] integers, int k, int base) {
+        if (size == 0) {
+            return k;
+        }
+
+        integers[k++] = min + base;
+        if (!isAuxiliaryEmpty()) {
+            if (isLeaf()) {
+                for (long summary = auxiliaryBits; summary != 0; summary &= summary - 1) {
+                    int i = Long.numberOfTrailingZeros(summary);
+                    int clusterBase = base + getBits(i, 0);
+                    for (long bits = leaves[i]; bits != 0; bits &= bits - 1) {
+                        integers[k++] = clusterBase + Long.numberOfTrailingZeros(bits);
+                    }
+                }
+            } else {
+                int last = auxiliary.max;
+                for (int i = auxiliary.min; ; i = auxiliary.getSuccessor(i)) {
+                    k = getChild(i).toIntArray(integers, k, base + getBits(i, 0));
+                    if (i == last) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (size > 1) {
+            integers[k++] = max + base;
+        }
+        return k;
+    }
+
+    /**
+     * Returns a spliterator that splits along the top level clusters, so that a parallel
+     * {@link #parallelIntStream()} hands whole clusters to each thread.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        if (isEmpty()) {
+            return Spliterators.emptyIntSpliterator();
+        }
+        return new ClusterSpliterator(min, max, size, Spliterator.SIZED);
+    }
+
+    private boolean isLeaf() {
+        return numBits - halfNumBits <= LEAF_BITS;
+    }
+
+    private boolean isAuxiliaryEmpty() {
+        if (isLeaf()) {
+            return auxiliaryBits == 0;
+        }
+        return auxiliary == null || auxiliary.isEmpty();
+    }
+
+    private int getAuxiliaryMin() {
+        return isLeaf() ? Long.numberOfTrailingZeros(auxiliaryBits) : auxiliary.min;
+    }
+
+    private int getAuxiliaryMax() {
+        return isLeaf() ? 63 - Long.numberOfLeadingZeros(auxiliaryBits) : auxiliary.max;
+    }
+
+    /**
+     * Requires i < getAuxiliaryMax().
+     */
+    private int getAuxiliarySuccessor(int i) {
+        return isLeaf() ? getBitmapSuccessor(auxiliaryBits, i) : auxiliary.getSuccessor(i);
+    }
+
+    /**
+     * Requires i > getAuxiliaryMin().
+     */
+    private int getAuxiliaryPredecessor(int i) {
+        return isLeaf() ? getBitmapPredecessor(auxiliaryBits, i) : auxiliary.getPredecessor(i);
+    }
+
+    private boolean isClusterNonEmpty(int i) {
+        if (isLeaf()) {
+            return (auxiliaryBits & 1L << i) != 0;
+        }
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        return child != null && !child.isEmpty();
+    }
+
+    private boolean containsInCluster(int i, int lowerOrderBits) {
+        if (isLeaf()) {
+            return (leaves[i] & 1L << lowerOrderBits) != 0;
+        }
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        return child != null && child.containsInt(lowerOrderBits);
+    }
+
+    /**
+     * Requires cluster i to be non-empty.
+     */
+    private int getClusterMin(int i) {
+        return isLeaf() ? Long.numberOfTrailingZeros(leaves[i]) : getChild(i).min;
+    }
+
+    /**
+     * Requires cluster i to be non-empty.
+     */
+    private int getClusterMax(int i) {
+        return isLeaf() ? 63 - Long.numberOfLeadingZeros(leaves[i]) : getChild(i).max;
+    }
+
+    /**
+     * Requires lowerOrderBits < getClusterMax(i).
+     */
+    private int getClusterSuccessor(int i, int lowerOrderBits) {
+        return isLeaf() ? getBitmapSuccessor(leaves[i], lowerOrderBits) : getChild(i).getSuccessor(lowerOrderBits);
+    }
+
+    /**
+     * Requires lowerOrderBits > getClusterMin(i).
+     */
+    private int getClusterPredecessor(int i, int lowerOrderBits) {
+        return isLeaf() ? getBitmapPredecessor(leaves[i], lowerOrderBits) : getChild(i).getPredecessor(lowerOrderBits);
+    }
+
+    private boolean addToCluster(int i, int lowerOrderBits) {
+        if (isLeaf()) {
+            if (leaves == null) {
+                leaves = newLeaves();
+            }
+            long bits = leaves[i];
+            long bit = 1L << lowerOrderBits;
+            if ((bits & bit) != 0) {
+                return false;
+            }
+            leaves[i] = bits | bit;
+            auxiliaryBits |= 1L << i;
+            return true;
+        }
+
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        if (child == null) {
+            child = newIntVanEmdeBoasTreeSet();
+            putChild(i, child);
+        }
+        if (!child.addInt(lowerOrderBits)) {
+            return false;
+        }
+        if (child.size == 1) {
+            if (auxiliary == null) {
+                auxiliary = newAuxiliary();
+            }
+            auxiliary.addInt(i);
+        }
+        return true;
+    }
+
+    private boolean removeFromCluster(int i, int lowerOrderBits) {
+        if (isLeaf()) {
+            long bits = leaves[i];
+            long bit = 1L << lowerOrderBits;
+            if ((bits & bit) == 0) {
+                return false;
+            }
+            bits &= ~bit;
+            leaves[i] = bits;
+            if (bits == 0) {
+                auxiliaryBits &= ~(1L << i);
+            }
+            return true;
+        }
+
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        if (child == null || !child.removeInt(lowerOrderBits)) {
+            return false;
+        }
+        if (child.isEmpty()) {
+            auxiliary.removeInt(i);
+            if (sparseChildren != null) {
+                recycle(sparseChildren.remove(i));
+            }
+        }
+        return true;
+    }
+
+    private IntVanEmdeBoasTreeSet getChild(int i) {
+        if (children != null) {
+            return children[i];
+        }
+        return sparseChildren == null ? null : sparseChildren.get(i);
+    }
+
+    private void putChild(int i, IntVanEmdeBoasTreeSet child) {
+        if (children == null && denseFillRatio > 0) {
+            if (sparseChildren == null) {
+                sparseChildren = new IntObjectHashMap<>();
+            }
+            sparseChildren.put(i, child);
+            if (sparseChildren.size() <= denseFillRatio * getNumClusters()) {
+                return;
+            }
+        }
+
+        if (children == null) {
+            children = newChildren();
+            if (sparseChildren != null) {
+                for (int j = 0; j < sparseChildren.capacity(); ++j) {
+                    IntVanEmdeBoasTreeSet sparseChild = sparseChildren.valueAt(j);
+                    if (sparseChild != null) {
+                        children[sparseChildren.keyAt(j)] = sparseChild;
+                    }
+                }
+                sparseChildren = null;
+            }
+        }
+        children[i] = child;
+    }
+
+    /**
+     * Requires bits to have a set bit above i.
+     */
+    private static int getBitmapSuccessor(long bits, int i) {
+        // -2L << 63 == 0, so this also holds for i == 63
+        return Long.numberOfTrailingZeros(bits & -2L << i);
+    }
+
+    /**
+     * Requires bits to have a set bit below i.
+     */
+    private static int getBitmapPredecessor(long bits, int i) {
+        return 63 - Long.numberOfLeadingZeros(bits & (1L << i) - 1);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (!(c instanceof IntNavigableSet)) {
+            for (Object o : c) {
+                if (!(o instanceof Integer)) {
+                    return false;
+                }
+            }
+        }
+        // sorted keys make the longest runs of keys in the same cluster
+        int[] keys = toSortedIntArray(c);
+        return containsAll(keys, new boolean[keys.length]);
+    }
+
+    /**
+     * Sets out[k] to whether keys[k] is in the set, for every k < keys.length, and returns whether
+     * they all are. When the next key falls in the same bottom node as a key, as sorted or
+     * clustered keys do, the lookup keeps a finger on that node, and the keys after it that stay
+     * in the node skip the descent from the root.
+     *
+     * @throws IllegalArgumentException if out is shorter than keys.
+     */
+    public boolean containsAll(int[] keys, boolean[] out) {
+        checkOutLength(keys.length, out.length);
+        Finger finger = new Finger();
+        int leafNodeBits = getLeafNodeBits();
+        boolean containsAll = true;
+        for (int k = 0; k < keys.length; ++k) {
+            int key = keys[k];
+            int unsigned = key - offset;
+            if (!finger.covers(unsigned) && k + 1 < keys.length
+                && unsigned >>> leafNodeBits == keys[k + 1] - offset >>> leafNodeBits) {
+                moveFinger(finger, key);
+            }
+            if (finger.covers(unsigned)) {
+                out[k] = finger.node.containsInt(unsigned & finger.mask) || finger.isExtra(unsigned);
+            } else {
+                out[k] = containsInt(key);
+            }
+            containsAll &= out[k];
+        }
+        return containsAll;
+    }
+
+    /**
+     * Sets out[k] to the successor of keys[k] for every k < keys.length, keeping a finger on the
+     * bottom node of the last descent like {@link #containsAll(int[], boolean[])}.
+     *
+     * @throws NoSuchElementException   if some key has no successor, before out is touched.
+     * @throws IllegalArgumentException if out is shorter than keys.
+     */
+    public void successors(int[] keys, int[] out) {
+        checkOutLength(keys.length, out.length);
+        for (int key : keys) {
+            if (isEmpty() || key >= max) {
+                throw new NoSuchElementException("No successor of " + key);
+            }
+        }
+
+        Finger finger = new Finger();
+        int leafNodeBits = getLeafNodeBits();
+        for (int k = 0; k < keys.length; ++k) {
+            int key = keys[k];
+            int unsigned = key - offset;
+            if (!finger.covers(unsigned) && k + 1 < keys.length
+                && unsigned >>> leafNodeBits == keys[k + 1] - offset >>> leafNodeBits) {
+                moveFinger(finger, key);
+            }
+            int successor = finger.covers(unsigned) ? finger.getSuccessor(unsigned) : -1;
+            // -1 if there is no finger here or the successor lies outside its node
+            out[k] = successor != -1 ? (finger.prefix << finger.bits | successor) + offset : getSuccessor(key);
+        }
+    }
+
+    /**
+     * Returns the number of bits of the nodes whose clusters are bitmaps.
+     */
+    private int getLeafNodeBits() {
+        int bits = numBits;
+        while (bits - (bits >> 1) > LEAF_BITS) {
+            bits >>= 1;
+        }
+        return bits;
+    }
+
+    /**
+     * Points the finger at the deepest node below the root on the path to the key. The root is
+     * left out, as its keys may be rebased and its range may not be a power of two.
+     */
+    private void moveFinger(Finger finger, int key) {
+        finger.node = null;
+        finger.numExtras = 0;
+        if (isEmpty() || isOutsideUniverse(key)) {
+            return;
+        }
+
+        IntVanEmdeBoasTreeSet node = this;
+        int nodeKey = key;
+        // the bits of the unsigned key above the node's
+        int prefix = 0;
+        while (!node.isLeaf() && !node.isAuxiliaryEmpty()) {
+            int i = node.getHigherOrderBits(nodeKey);
+            IntVanEmdeBoasTreeSet child = node.getChild(i);
+            if (child == null || child.isEmpty()) {
+                break;
+            }
+            // min and max are kept out of the clusters, so remember them as unsigned keys
+            int nodeBase = prefix << node.numBits;
+            finger.extras[finger.numExtras++] = nodeBase | node.min - node.offset;
+            finger.extras[finger.numExtras++] = nodeBase | node.max - node.offset;
+            nodeKey = node.getLowerOrderBits(nodeKey);
+            prefix = prefix << node.numBits - node.halfNumBits | i;
+            node = child;
+        }
+        if (node != this) {
+            finger.node = node;
+            finger.bits = node.numBits;
+            finger.mask = (1 << node.numBits) - 1;
+            finger.prefix = prefix;
+            finger.keepExtrasInRange();
+        }
+    }
+
+    /**
+     * A node deep in the tree and the range of unsigned keys, key - offset of the root, it covers,
+     * with the elements of its ancestors that fall in that range.
+     */
+    private static final class Finger {
+        IntVanEmdeBoasTreeSet node;
+        int bits;
+        int mask;
+        int prefix;
+        // unsigned while the finger moves, then keys of the node; a min and a max per ancestor
+        final int[] extras = new int[8];
+        int numExtras;
+
+        boolean covers(int unsigned) {
+            return node != null && unsigned >>> bits == prefix;
+        }
+
+        /**
+         * Drops the extras outside the covered range and turns the rest into keys of the node.
+         */
+        void keepExtrasInRange() {
+            int n = 0;
+            for (int e = 0; e < numExtras; ++e) {
+                if (covers(extras[e])) {
+                    extras[n++] = extras[e] & mask;
+                }
+            }
+            numExtras = n;
+        }
+
+        boolean isExtra(int unsigned) {
+            int key = unsigned & mask;
+            for (int e = 0; e < numExtras; ++e) {
+                if (extras[e] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the smallest element above the key in the covered range, as a key of the node,
+         * or -1 if there is none.
+         */
+        int getSuccessor(int unsigned) {
+            int key = unsigned & mask;
+            int successor = key < node.max ? node.getSuccessor(key) : -1;
+            for (int e = 0; e < numExtras; ++e) {
+                if (extras[e] > key && (successor == -1 || extras[e] < successor)) {
+                    successor = extras[e];
+                }
+            }
+            return successor;
+        }
+    }
+
+    private static void checkOutLength(int length, int outLength) {
+        if (outLength < length) {
+            throw new IllegalArgumentException("out has " + outLength + " slots for " + length + " keys");
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (isSameUniverse(c)) {
+            return unionWith((IntVanEmdeBoasTreeSet) c);
+        }
+        int[] keys = toSortedIntArray(c);
+        return addAllSorted(keys, 0, keys.length);
+    }
+
+    /**
+     * Adds keys in any order, by sorting a copy unless they are already sorted and passing them
+     * to {@link #addAllSorted}.
+     */
+    public boolean addAll(int[] keys) {
+        for (int k = 1; k < keys.length; ++k) {
+            if (keys[k] < keys[k - 1]) {
+                int[] sortedKeys = ArrayUtils.radixSort(keys);
+                return addAllSorted(sortedKeys, 0, sortedKeys.length);
+            }
+        }
+        return addAllSorted(keys, 0, keys.length);
+    }
+
+    /**
+     * Adds keys[from, to), which must be in ascending order but may repeat.
+     *
+     * An empty set is built bottom-up in one pass over the keys: each node takes the first and
+     * last key as min and max, groups the keys in between by cluster, and builds its children and
+     * then its auxiliary summary from those groups. A set that is not empty adds the keys one by one.
+     *
+     * @throws IllegalArgumentException if the keys are not sorted or some key is outside the
+     *                                  universe, in which case nothing is added.
+     */
+    public boolean addAllSorted(int[] keys, int from, int to) {
+        int n = 0;
+        for (int k = from; k < to; ++k) {
+            if (k > from && keys[k] <= keys[k - 1]) {
+                if (keys[k] < keys[k - 1]) {
+                    throw new IllegalArgumentException("keys are not sorted at index " + k);
+                }
+                continue;
+            }
+            ++n;
+        }
+        if (n == 0) {
+            return false;
+        }
+        // the universe is a range of ints, so sorted keys are in it if both ends are
+        if (isOutsideUniverse(keys[from]) || isOutsideUniverse(keys[to - 1])) {
+            int key = isOutsideUniverse(keys[from]) ? keys[from] : keys[to - 1];
+            throw new IllegalArgumentException(key + " is outside the universe of the set");
+        }
+
+        if (!isEmpty()) {
+            boolean changed = false;
+            for (int k = from; k < to; ++k) {
+                changed |= addInt(keys[k]);
+            }
+            return changed;
+        }
+
+        if (n < to - from) {
+            int[] distinctKeys = new int[n];
+            n = 0;
+            for (int k = from; k < to; ++k) {
+                if (k == from || keys[k] != keys[k - 1]) {
+                    distinctKeys[n++] = keys[k];
+                }
+            }
+            keys = distinctKeys;
+            from = 0;
+            to = n;
+        }
+        build(keys, from, to, 0, -1);
+        return true;
+    }
+
+    /**
+     * Builds an empty node from keys[from, to), whose keys in this node, key - bias & mask, must
+     * be distinct and ascending. Children are built from the same array with the offset of this
+     * node as bias and the mask of their lower order bits, so only the auxiliary summaries need
+     * arrays of their own.
+     */
+    private void build(int[] keys, int from, int to, int bias, int mask) {
+        assert isEmpty() && from < to;
+        min = keys[from] - bias & mask;
+        max = keys[to - 1] - bias & mask;
+        size = to - from;
+        if (size <= 2) {
+            return;
+        }
+
+        int lowerOrderBitsMask = (1 << halfNumBits) - 1;
+        int[] clusters = isLeaf() ? null : new int[size - 2];
+        int numBuilt = 0;
+        int last = to - 1;
+        for (int start = from + 1, end; start < last; start = end) {
+            int i = getHigherOrderBits(keys[start] - bias & mask);
+            end = start + 1;
+            while (end < last && getHigherOrderBits(keys[end] - bias & mask) == i) {
+                ++end;
+            }
+
+            if (isLeaf()) {
+                if (leaves == null) {
+                    leaves = newLeaves();
+                }
+                long bits = 0;
+                for (int k = start; k < end; ++k) {
+                    bits |= 1L << getLowerOrderBits(keys[k] - bias & mask);
+                }
+                leaves[i] = bits;
+                auxiliaryBits |= 1L << i;
+            } else {
+                IntVanEmdeBoasTreeSet child = newIntVanEmdeBoasTreeSet();
+                // the masks nest, so the lower order bits of keys deeper down need no other bias
+                child.build(keys, start, end, bias + offset, lowerOrderBitsMask);
+                putChild(i, child);
+                clusters[numBuilt++] = i;
+            }
+        }
+        if (numBuilt > 0) {
+            auxiliary = newAuxiliary();
+            auxiliary.build(clusters, 0, numBuilt, 0, -1);
+        }
+    }
+
+    /**
+     * Keeps only the elements of c, by removing the ranges between its sorted elements.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (isSameUniverse(c)) {
+            return intersectWith((IntVanEmdeBoasTreeSet) c);
+        }
+        int[] keys = toSortedIntArray(c);
+        if (keys.length == 0) {
+            return removeRange(Integer.MIN_VALUE, Integer.MAX_VALUE) > 0;
+        }
+
+        int removed = 0;
+        if (keys[0] > Integer.MIN_VALUE) {
+            removed += removeRange(Integer.MIN_VALUE, keys[0] - 1);
+        }
+        for (int k = 1; k < keys.length; ++k) {
+            if ((long) keys[k] - keys[k - 1] > 1) {
+                removed += removeRange(keys[k - 1] + 1, keys[k] - 1);
+            }
+        }
+        if (keys[keys.length - 1] < Integer.MAX_VALUE) {
+            removed += removeRange(keys[keys.length - 1] + 1, Integer.MAX_VALUE);
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Removes the elements of c, taking runs of consecutive elements as one range.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (isSameUniverse(c)) {
+            return differenceWith((IntVanEmdeBoasTreeSet) c);
+        }
+        int[] keys = toSortedIntArray(c);
+        int removed = 0;
+        for (int k = 0, end; k < keys.length; k = end) {
+            end = k + 1;
+            while (end < keys.length && (long) keys[end] - keys[end - 1] <= 1) {
+                ++end;
+            }
+            removed += removeRange(keys[k], keys[end - 1]);
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Returns the ints in c in ascending order, possibly repeated, skipping anything else.
+     */
+    private static int[] toSortedIntArray(Collection<?> c) {
+        if (c instanceof IntNavigableSet && ((IntNavigableSet) c).comparator() == null) {
+            return ((IntNavigableSet) c).toIntArray();
+        }
+
+        int[] keys = new int[c.size()];
+        int k = 0;
+        boolean sorted = true;
+        for (Object o : c) {
+            if (o instanceof Integer) {
+                keys[k] = (Integer) o;
+                sorted &= k == 0 || keys[k] >= keys[k - 1];
+                ++k;
+            }
+        }
+        if (k < keys.length) {
+            keys = Arrays.copyOf(keys, k);
+        }
+        return sorted ? keys : ArrayUtils.radixSort(keys);
+    }
+
+    @Override
+    public int countInRange(int lo, int hi) {
+        if (isEmpty() || lo > hi || hi < min || lo > max) {
+            return 0;
+        }
+        if (lo <= min && max <= hi) {
+            return size;
+        }
+
+        int count = (lo <= min ? 1 : 0) + (max <= hi ? 1 : 0);
+        if (!isAuxiliaryEmpty()) {
+            // clip to the node, since the clusters only hold elements strictly between min and max
+            int from = Math.max(lo, min);
+            int to = Math.min(hi, max);
+            count += countInClusters(getHigherOrderBits(from), getLowerOrderBits(from),
+                getHigherOrderBits(to), getLowerOrderBits(to));
+        }
+        return count;
+    }
+
+    /**
+     * Counts the elements in the clusters from lowerOrderBits jLo of cluster iLo up to
+     * lowerOrderBits jHi of cluster iHi, by summing the sizes of the clusters in between.
+     */
+    private int countInClusters(int iLo, int jLo, int iHi, int jHi) {
+        int maxLowerOrderBits = (1 << halfNumBits) - 1;
+        if (isLeaf()) {
+            int count = 0;
+            for (long summary = auxiliaryBits & getRangeMask(iLo, iHi); summary != 0; summary &= summary - 1) {
+                int i = Long.numberOfTrailingZeros(summary);
+                long mask = getRangeMask(i == iLo ? jLo : 0, i == iHi ? jHi : maxLowerOrderBits);
+                count += Long.bitCount(leaves[i] & mask);
+            }
+            return count;
+        }
+
+        if (iLo == iHi) {
+            return countInCluster(iLo, jLo, jHi);
+        }
+        int count = countInCluster(iLo, jLo, maxLowerOrderBits) + countInCluster(iHi, 0, jHi);
+        if (iHi - iLo > 1 && iLo < auxiliary.max) {
+            for (int i = auxiliary.getSuccessor(iLo); i < iHi; i = auxiliary.getSuccessor(i)) {
+                count += getChild(i).size;
+                if (i == auxiliary.max) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int countInCluster(int i, int lo, int hi) {
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        return child == null ? 0 : child.countInRange(lo, hi);
+    }
+
+    /**
+     * Removes the elements in [lo, hi] and returns how many there were. Clusters that lie wholly
+     * inside the range are dropped whole and taken out of the auxiliary summary with one
+     * removeRange on it, rather than element by element.
+     */
+    @Override
+    public int removeRange(int lo, int hi) {
+        if (isEmpty() || lo > hi || hi < min || lo > max) {
+            return 0;
+        }
+        if (lo <= min && max <= hi) {
+            int removed = size;
+            reset();
+            return removed;
+        }
+
+        int removed = 0;
+        if (!isAuxiliaryEmpty()) {
+            int from = Math.max(lo, min);
+            int to = Math.min(hi, max);
+            removed = removeRangeFromClusters(getHigherOrderBits(from), getLowerOrderBits(from),
+                getHigherOrderBits(to), getLowerOrderBits(to));
+            size -= removed;
+        }
+        // min and max are refilled from the clusters, which hold nothing in range any more
+        if (lo <= min && min <= hi) {
+            removeInt(min);
+            ++removed;
+        }
+        if (size > 0 && lo <= max && max <= hi) {
+            removeInt(max);
+            ++removed;
+        }
+        return removed;
+    }
+
+    private int removeRangeFromClusters(int iLo, int jLo, int iHi, int jHi) {
+        int maxLowerOrderBits = (1 << halfNumBits) - 1;
+        if (isLeaf()) {
+            int removed = 0;
+            for (long summary = auxiliaryBits & getRangeMask(iLo, iHi); summary != 0; summary &= summary - 1) {
+                int i = Long.numberOfTrailingZeros(summary);
+                long mask = getRangeMask(i == iLo ? jLo : 0, i == iHi ? jHi : maxLowerOrderBits);
+                removed += Long.bitCount(leaves[i] & mask);
+                leaves[i] &= ~mask;
+                if (leaves[i] == 0) {
+                    auxiliaryBits &= ~(1L << i);
+                }
+            }
+            return removed;
+        }
+
+        if (iLo == iHi) {
+            return removeRangeFromCluster(iLo, jLo, jHi);
+        }
+        int removed = removeRangeFromCluster(iLo, jLo, maxLowerOrderBits) + removeRangeFromCluster(iHi, 0, jHi);
+        if (iHi - iLo > 1 && !isAuxiliaryEmpty() && iLo < auxiliary.max) {
+            for (int i = auxiliary.getSuccessor(iLo); i < iHi; i = auxiliary.getSuccessor(i)) {
+                removed += getChild(i).size;
+                removeChild(i);
+                if (i == auxiliary.max) {
+                    break;
+                }
+            }
+            auxiliary.removeRange(iLo + 1, iHi - 1);
+        }
+        return removed;
+    }
+
+    private int removeRangeFromCluster(int i, int lo, int hi) {
+        IntVanEmdeBoasTreeSet child = getChild(i);
+        if (child == null) {
+            return 0;
+        }
+        int removed = child.removeRange(lo, hi);
+        if (removed > 0 && child.isEmpty()) {
+            auxiliary.removeInt(i);
+            if (sparseChildren != null) {
+                recycle(sparseChildren.remove(i));
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns a mask of bits from through to, inclusive.
+     */
+    private static long getRangeMask(int from, int to) {
+        return -1L << from & -1L >>> 63 - to;
+    }
+
+    private boolean isSameUniverse(Collection<?> c) {
+        return c instanceof IntVanEmdeBoasTreeSet && isSameUniverse((IntVanEmdeBoasTreeSet) c);
+    }
+
+    private boolean isSameUniverse(IntVanEmdeBoasTreeSet other) {
+        return other.numBits == numBits && other.offset == offset && other.maxUnsigned == maxUnsigned;
+    }
+
+    private void checkSameUniverse(IntVanEmdeBoasTreeSet other) {
+        if (other.numBits != numBits) {
+            throw new IllegalArgumentException("numBits differ: " + numBits + " != " + other.numBits);
+        }
+        if (!isSameUniverse(other)) {
+            throw new IllegalArgumentException("ranges differ: " + getRange() + " != " + other.getRange());
+        }
+    }
+
+    private String getRange() {
+        return "[" + offset + ", " + (offset + maxUnsigned) + "]";
+    }
+
+    /**
+     * Returns the number of bits of a set made by {@link #IntVanEmdeBoasTreeSet(int)} that can
+     * hold every key of this one, which for a range not starting at 0 is 32.
+     */
+    private int getPlainNumBits() {
+        return numBits == 32 || offset == 0 ? numBits : 32;
+    }
+
+    /**
+     * Returns a new set with the elements of either set. Both sets must have the same universe.
+     */
+    public static IntVanEmdeBoasTreeSet union(IntVanEmdeBoasTreeSet a, IntVanEmdeBoasTreeSet b) {
+        IntVanEmdeBoasTreeSet result = a.size >= b.size ? a.copy() : b.copy();
+        result.unionWith(a.size >= b.size ? b : a);
+        return result;
+    }
+
+    /**
+     * Returns a new set with the elements of both sets. Both sets must have the same universe.
+     */
+    public static IntVanEmdeBoasTreeSet intersection(IntVanEmdeBoasTreeSet a, IntVanEmdeBoasTreeSet b) {
+        IntVanEmdeBoasTreeSet result = a.size <= b.size ? a.copy() : b.copy();
+        result.intersectWith(a.size <= b.size ? b : a);
+        return result;
+    }
+
+    /**
+     * Returns a new set with the elements of a that are not in b. Both sets must have the same
+     * universe.
+     */
+    public static IntVanEmdeBoasTreeSet difference(IntVanEmdeBoasTreeSet a, IntVanEmdeBoasTreeSet b) {
+        IntVanEmdeBoasTreeSet result = a.copy();
+        result.differenceWith(b);
+        return result;
+    }
+
+    /**
+     * Writes the elements to the channel as varint encoded deltas, see {@link SortedIntCodec}. The
+     * dense fill ratio is a tuning choice of the reader and is not written, and neither is the
+     * range of a set made by {@link #forRange(int, int)}, which reads back as a set of the same
+     * numBits if the range starts at 0 and of 32 bits otherwise.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        SortedIntCodec.write(channel, MAGIC, getPlainNumBits(), toIntArray(), size);
+    }
+
+    public static IntVanEmdeBoasTreeSet readFrom(ReadableByteChannel channel) throws IOException {
+        return readFrom(channel, 0);
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(WritableByteChannel)}, bulk loading the sorted keys
+     * with {@link #addAllSorted(int[], int, int)}.
+     *
+     * @throws IOException if the channel does not hold such a set.
+     */
+    public static IntVanEmdeBoasTreeSet readFrom(ReadableByteChannel channel, float denseFillRatio) throws IOException {
+        SortedIntCodec.Reader reader = new SortedIntCodec.Reader(channel, MAGIC);
+        int numBits = reader.getNumBits();
+        if (numBits < 1 || numBits > 32) {
+            throw new IOException("Corrupt header: numBits " + numBits);
+        }
+        int[] keys = reader.readKeys();
+        if (numBits < 32 && keys.length > 0 && (keys[0] < 0 || keys[keys.length - 1] >>> numBits != 0)) {
+            throw new IOException("Corrupt keys: outside of " + numBits + " bits");
+        }
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(numBits, denseFillRatio);
+        set.addAllSorted(keys, 0, keys.length);
+        return set;
+    }
+
+    /**
+     * Returns an immutable snapshot of the set, packed into a few primitive arrays, that is
+     * cheaper to query and can be shared between threads. Later changes to this set do not show.
+     */
+    public FrozenIntVanEmdeBoasTreeSet freeze() {
+        return new FrozenIntVanEmdeBoasTreeSet(getPlainNumBits(), toIntArray());
+    }
+
+    /**
+     * Returns a deep copy with the same universe and dense fill ratio.
+     */
+    public IntVanEmdeBoasTreeSet copy() {
+        return new IntVanEmdeBoasTreeSet(numBits, offset, maxUnsigned, denseFillRatio, null).copyFrom(this);
+    }
+
+    /**
+     * Replaces the elements of this node with those of other, which must have the same universe.
+     */
+    private IntVanEmdeBoasTreeSet copyFrom(IntVanEmdeBoasTreeSet other) {
+        reset();
+        size = other.size;
+        min = other.min;
+        max = other.max;
+        if (other.isAuxiliaryEmpty()) {
+            return this;
+        }
+
+        if (isLeaf()) {
+            auxiliaryBits = other.auxiliaryBits;
+            leaves = other.leaves.clone();
+            return this;
+        }
+        auxiliary = newAuxiliary().copyFrom(other.auxiliary);
+        int last = other.auxiliary.max;
+        for (int i = other.auxiliary.min; ; i = other.auxiliary.getSuccessor(i)) {
+            putChild(i, newIntVanEmdeBoasTreeSet().copyFrom(other.getChild(i)));
+            if (i == last) {
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the elements of other, which must have the same universe. Clusters that are only in
+     * other are copied whole, and clusters in both are merged recursively.
+     *
+     * @return whether this set changed.
+     */
+    public boolean unionWith(IntVanEmdeBoasTreeSet other) {
+        checkSameUniverse(other);
+        if (other == this || other.isEmpty()) {
+            return false;
+        }
+        if (isEmpty()) {
+            copyFrom(other);
+            return true;
+        }
+
+        int oldSize = size;
+        // afterwards min <= other.min and other.max <= max, so the clusters of other hold
+        // nothing equal to min or max
+        addInt(other.min);
+        addInt(other.max);
+        if (!other.isAuxiliaryEmpty()) {
+            size += unionClusters(other);
+        }
+        return size != oldSize;
+    }
+
+    private int unionClusters(IntVanEmdeBoasTreeSet other) {
+        int added = 0;
+        if (isLeaf()) {
+            if (leaves == null) {
+                leaves = newLeaves();
+            }
+            for (long summary = other.auxiliaryBits; summary != 0; summary &= summary - 1) {
+                int i = Long.numberOfTrailingZeros(summary);
+                long bits = leaves[i] | other.leaves[i];
+                added += Long.bitCount(bits) - Long.bitCount(leaves[i]);
+                leaves[i] = bits;
+            }
+            auxiliaryBits |= other.auxiliaryBits;
+            return added;
+        }
+
+        int last = other.auxiliary.max;
+        for (int i = other.auxiliary.min; ; i = other.auxiliary.getSuccessor(i)) {
+            IntVanEmdeBoasTreeSet otherChild = other.getChild(i);
+            IntVanEmdeBoasTreeSet child = getChild(i);
+            if (child == null || child.isEmpty()) {
+                putChild(i, newIntVanEmdeBoasTreeSet().copyFrom(otherChild));
+                added += otherChild.size;
+            } else {
+                int oldSize = child.size;
+                child.unionWith(otherChild);
+                added += child.size - oldSize;
+            }
+            if (i == last) {
+                break;
+            }
+        }
+        if (auxiliary == null) {
+            auxiliary = newAuxiliary();
+        }
+        auxiliary.unionWith(other.auxiliary);
+        return added;
+    }
+
+    /**
+     * Keeps only the elements that are also in other, which must have the same universe. Clusters
+     * that are empty in other are dropped whole, and the rest are intersected recursively.
+     *
+     * @return whether this set changed.
+     */
+    public boolean intersectWith(IntVanEmdeBoasTreeSet other) {
+        checkSameUniverse(other);
+        if (other == this || isEmpty()) {
+            return false;
+        }
+        if (other.isEmpty()) {
+            reset();
+            return true;
+        }
+
+        int oldSize = size;
+        int oldMin = min;
+        int oldMax = max;
+        boolean keepMin = other.containsInt(min);
+        boolean keepMax = other.containsInt(max);
+        if (!isAuxiliaryEmpty()) {
+            size -= intersectClusters(other);
+        }
+        // the clusters are already intersected, so whatever replaces min or max is kept
+        if (!keepMax) {
+            removeInt(oldMax);
+        }
+        if (!keepMin) {
+            removeInt(oldMin);
+        }
+        return size != oldSize;
+    }
+
+    /**
+     * Intersects the clusters with those of other, where the min and max of other, which are not
+     * in its clusters, count as cluster elements too.
+     */
+    private int intersectClusters(IntVanEmdeBoasTreeSet other) {
+        int minHigh = getHigherOrderBits(other.min);
+        int minLow = getLowerOrderBits(other.min);
+        int maxHigh = getHigherOrderBits(other.max);
+        int maxLow = getLowerOrderBits(other.max);
+        int removed = 0;
+        if (isLeaf()) {
+            for (long summary = auxiliaryBits; summary != 0; summary &= summary - 1) {
+                int i = Long.numberOfTrailingZeros(summary);
+                long mask = other.isClusterNonEmpty(i) ? other.leaves[i] : 0;
+                if (i == minHigh) {
+                    mask |= 1L << minLow;
+                }
+                if (i == maxHigh) {
+                    mask |= 1L << maxLow;
+                }
+                long bits = leaves[i] & mask;
+                removed += Long.bitCount(leaves[i]) - Long.bitCount(bits);
+                leaves[i] = bits;
+                if (bits == 0) {
+                    auxiliaryBits &= ~(1L << i);
+                }
+            }
+            return removed;
+        }
+
+        int last = auxiliary.max;
+        for (int i = auxiliary.min, next; ; i = next) {
+            // look ahead before the auxiliary changes under us
+            next = i < last ? auxiliary.getSuccessor(i) : i;
+            IntVanEmdeBoasTreeSet child = getChild(i);
+            boolean hasMin = i == minHigh && child.containsInt(minLow);
+            boolean hasMax = i == maxHigh && child.containsInt(maxLow);
+            boolean isOtherClusterNonEmpty = other.isClusterNonEmpty(i);
+            if (!isOtherClusterNonEmpty && !hasMin && !hasMax) {
+                // nothing of other is in this cluster, so drop it whole
+                removed += child.size;
+                auxiliary.removeInt(i);
+                removeChild(i);
+            } else {
+                int oldSize = child.size;
+                if (isOtherClusterNonEmpty) {
+                    child.intersectWith(other.getChild(i));
+                } else {
+                    child.reset();
+                }
+                if (hasMin) {
+                    child.addInt(minLow);
+                }
+                if (hasMax) {
+                    child.addInt(maxLow);
+                }
+                removed += oldSize - child.size;
+                if (child.isEmpty()) {
+                    auxiliary.removeInt(i);
+                    removeChild(i);
+                }
+            }
+            if (i == last) {
+                break;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the elements that are in other, which must have the same universe. Only the clusters
+     * that are non-empty in both sets are visited, walking whichever summary is smaller.
+     *
+     * @return whether this set changed.
+     */
+    public boolean differenceWith(IntVanEmdeBoasTreeSet other) {
+        checkSameUniverse(other);
+        if (isEmpty() || other.isEmpty()) {
+            return false;
+        }
+        if (other == this) {
+            reset();
+            return true;
+        }
+
+        int oldSize = size;
+        int oldMin = min;
+        int oldMax = max;
+        boolean removeMin = other.containsInt(min);
+        boolean removeMax = other.containsInt(max);
+        if (!isAuxiliaryEmpty() && !other.isAuxiliaryEmpty()) {
+            size -= differenceClusters(other);
+        }
+        // what is left of other is its min and max, wherever they are here
+        removeInt(other.min);
+        removeInt(other.max);
+        if (removeMax) {
+            removeInt(oldMax);
+        }
+        if (removeMin) {
+            removeInt(oldMin);
+        }
+        return size != oldSize;
+    }
+
+    private int differenceClusters(IntVanEmdeBoasTreeSet other) {
+        int removed = 0;
+        if (isLeaf()) {
+            for (long summary = auxiliaryBits & other.auxiliaryBits; summary != 0; summary &= summary - 1) {
+                int i = Long.numberOfTrailingZeros(summary);
+                long bits = leaves[i] & ~other.leaves[i];
+                removed += Long.bitCount(leaves[i]) - Long.bitCount(bits);
+                leaves[i] = bits;
+                if (bits == 0) {
+                    auxiliaryBits &= ~(1L << i);
+                }
+            }
+            return removed;
+        }
+
+        IntVanEmdeBoasTreeSet summary = auxiliary.size <= other.auxiliary.size ? auxiliary : other.auxiliary;
+        int last = summary.max;
+        for (int i = summary.min, next; ; i = next) {
+            next = i < last ? summary.getSuccessor(i) : i;
+            if (isClusterNonEmpty(i) && other.isClusterNonEmpty(i)) {
+                IntVanEmdeBoasTreeSet child = getChild(i);
+                int oldSize = child.size;
+                child.differenceWith(other.getChild(i));
+                removed += oldSize - child.size;
+                if (child.isEmpty()) {
+                    auxiliary.removeInt(i);
+                    removeChild(i);
+                }
+            }
+            if (i == last) {
+                break;
+            }
+        }
+        return removed;
+    }
+
+    private void removeChild(int i) {
+        IntVanEmdeBoasTreeSet child;
+        if (children != null) {
+            child = children[i];
+            children[i] = null;
+        } else {
+            child = sparseChildren.remove(i);
+        }
+        recycle(child);
+    }
+
+    /**
+     * Hands a cluster that is no longer in the tree to the pool, if there is one with room.
+     */
+    private void recycle(IntVanEmdeBoasTreeSet child) {
+        if (pool != null && child != null && pool.hasRoom(child.numBits)) {
+            child.empty();
+            pool.offer(child);
+        }
+    }
+
+    /**
+     * Empties the node like {@link #reset()}, but keeps its auxiliary summary and its children
+     * array or leaves for reuse. Costs the size of those rather than O(1).
+     */
+    private void empty() {
+        if (isEmpty()) {
+            // removing the last element already left the clusters empty
+            return;
+        }
+        size = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        if (auxiliary != null) {
+            auxiliary.empty();
+        }
+        if (children != null) {
+            Arrays.fill(children, null);
+        }
+        if (sparseChildren != null) {
+            sparseChildren.clear();
+        }
+        auxiliaryBits = 0;
+        if (leaves != null) {
+            Arrays.fill(leaves, 0);
+        }
+    }
+
+    /**
+     * Empties the node and lets go of its clusters.
+     */
+    private void reset() {
+        size = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        auxiliary = null;
+        children = null;
+        sparseChildren = null;
+        auxiliaryBits = 0;
+        leaves = null;
+    }
+
+    /**
+     * Empties the set in O(1) by letting go of all its clusters, which are not pooled.
+     */
+    @Override
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Emptied nodes of one set, at most capacity of each number of bits.
+     */
+    private static final class Pool {
+        private final int capacity;
+        // indexed by number of bits
+        private final IntVanEmdeBoasTreeSet[][] nodes = new IntVanEmdeBoasTreeSet[33][];
+        private final int[] sizes = new int[33];
+
+        Pool(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean hasRoom(int numBits) {
+            return sizes[numBits] < capacity;
+        }
+
+        /**
+         * Requires the node to be empty and hasRoom(node.numBits).
+         */
+        void offer(IntVanEmdeBoasTreeSet node) {
+            int numBits = node.numBits;
+            IntVanEmdeBoasTreeSet[] stack = nodes[numBits];
+            if (stack == null || sizes[numBits] == stack.length) {
+                int length = Math.min(stack == null ? 4 : stack.length << 1, capacity);
+                stack = nodes[numBits] = stack == null ? new IntVanEmdeBoasTreeSet[length] : Arrays.copyOf(stack, length);
+            }
+            stack[sizes[numBits]++] = node;
+        }
+
+        IntVanEmdeBoasTreeSet poll(int numBits) {
+            if (sizes[numBits] == 0) {
+                return null;
+            }
+            IntVanEmdeBoasTreeSet node = nodes[numBits][--sizes[numBits]];
+            nodes[numBits][sizes[numBits]] = null;
+            return node;
+        }
+    }
+
+    /**
+     * Returns the footprint and shape of the tree. This walks the allocated nodes but not the
+     * elements in them, so it costs far less than iterating over the set, but it is still O(n)
+     * for a sparse set, whose nodes hold few elements each. Take it at the pace of a metrics
+     * scrape rather than on a hot path.
+     */
+    public Stats getStats() {
+        StatsCollector collector = new StatsCollector();
+        collectStats(collector, 0, true);
+        int numLevels = collector.clustersPerLevel.length;
+        while (numLevels > 0 && collector.clustersPerLevel[numLevels - 1] == 0) {
+            --numLevels;
+        }
+        return new Stats(collector.retainedBytes, Arrays.copyOf(collector.clustersPerLevel, numLevels),
+            collector.emptyChildSlots, size == 0 ? 0 : (double) collector.depthSum / size);
+    }
+
+    /**
+     * Adds this node at the given depth. Only the nodes holding elements, rather than cluster
+     * indices of an auxiliary summary, count towards the depth of the elements.
+     */
+    private void collectStats(StatsCollector collector, int depth, boolean holdsElements) {
+        collector.retainedBytes += NODE_BYTES;
+        ++collector.clustersPerLevel[depth];
+        if (holdsElements) {
+            collector.depthSum += (long) depth * Math.min(size, 2);
+        }
+
+        if (isLeaf()) {
+            if (leaves != null) {
+                collector.retainedBytes += ObjectSizes.getArrayBytes(leaves.length, Long.BYTES);
+                for (long bits : leaves) {
+                    if (bits == 0) {
+                        ++collector.emptyChildSlots;
+                    } else if (holdsElements) {
+                        collector.depthSum += (long) (depth + 1) * Long.bitCount(bits);
+                    }
+                }
+            }
+            return;
+        }
+
+        if (auxiliary != null) {
+            auxiliary.collectStats(collector, depth + 1, false);
+        }
+        if (children != null) {
+            collector.retainedBytes += ObjectSizes.getArrayBytes(children.length, ObjectSizes.REFERENCE_BYTES);
+            for (IntVanEmdeBoasTreeSet child : children) {
+                if (child == null || child.isEmpty()) {
+                    ++collector.emptyChildSlots;
+                }
+                if (child != null) {
+                    child.collectStats(collector, depth + 1, holdsElements);
+                }
+            }
+        } else if (sparseChildren != null) {
+            collector.retainedBytes += sparseChildren.getShallowBytes();
+            collector.emptyChildSlots += sparseChildren.capacity() - sparseChildren.size();
+            for (int j = 0; j < sparseChildren.capacity(); ++j) {
+                IntVanEmdeBoasTreeSet child = sparseChildren.valueAt(j);
+                if (child != null) {
+                    child.collectStats(collector, depth + 1, holdsElements);
+                }
+            }
+        }
+    }
+
+    private static class StatsCollector {
+        long retainedBytes;
+        // a 32-bit tree has 3 levels, counting auxiliary summaries
+        long[] clustersPerLevel = new long[8];
+        long emptyChildSlots;
+        long depthSum;
+    }
+
+    /**
+     * A snapshot of the footprint and shape of a set, see {@link #getStats()}.
+     */
+    public static final class Stats {
+        private final long retainedBytes;
+        private final long[] clustersPerLevel;
+        private final long emptyChildSlots;
+        private final double averageDepth;
+
+        Stats(long retainedBytes, long[] clustersPerLevel, long emptyChildSlots, double averageDepth) {
+            this.retainedBytes = retainedBytes;
+            this.clustersPerLevel = clustersPerLevel;
+            this.emptyChildSlots = emptyChildSlots;
+            this.averageDepth = averageDepth;
+        }
+
+        /**
+         * Returns the estimated heap bytes taken by the nodes and their arrays, see
+         * {@link ObjectSizes}.
+         */
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        /**
+         * Returns the number of nodes at each depth, with the root at depth 0 and auxiliary
+         * summaries one level below the node they summarize.
+         */
+        public long[] getClustersPerLevel() {
+            return clustersPerLevel.clone();
+        }
+
+        /**
+         * Returns the number of slots in children arrays, leaf arrays and sparse hash tables
+         * that hold no non-empty cluster.
+         */
+        public long getEmptyChildSlots() {
+            return emptyChildSlots;
+        }
+
+        /**
+         * Returns the average depth at which an element is stored, which is the number of
+         * recursive calls needed to find it.
+         */
+        public double getAverageDepth() {
+            return averageDepth;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{retainedBytes=" + retainedBytes
+                + ", clustersPerLevel=" + Arrays.toString(clustersPerLevel)
+                + ", emptyChildSlots=" + emptyChildSlots
+                + ", averageDepth=" + averageDepth + "}";
+        }
+    }
+
+    /**
+     * Covers the elements in [lo, hi]. Splitting halves the range of top level clusters it spans.
+     */
+    private class ClusterSpliterator implements Spliterator.OfInt {
+        private int lo;
+        private final int hi;
+        private long estimatedSize;
+        private int sized;
+        private boolean done = false;
+
+        ClusterSpliterator(int lo, int hi, long estimatedSize, int sized) {
+            this.lo = lo;
+            this.hi = hi;
+            this.estimatedSize = estimatedSize;
+            this.sized = sized;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            if (done) {
+                return null;
+            }
+            int from = getHigherOrderBits(lo);
+            int to = getHigherOrderBits(hi);
+            if (from == to) {
+                return null;
+            }
+            int mid = getBits(from + (to - from + 1 >>> 1), 0);
+            long prefixEstimatedSize = estimatedSize >>> 1;
+            ClusterSpliterator prefix = new ClusterSpliterator(lo, mid - 1, prefixEstimatedSize, 0);
+            lo = mid;
+            estimatedSize -= prefixEstimatedSize;
+            sized = 0;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (done || isEmpty() || lo > max) {
+                done = true;
+                return false;
+            }
+            int integer = ceilingInt(lo);
+            if (integer > hi) {
+                done = true;
+                return false;
+            }
+            action.accept(integer);
+            if (integer == hi) {
+                done = true;
+            } else {
+                lo = integer + 1;
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (done || isEmpty() || lo > max) {
+                done = true;
+                return;
+            }
+            done = true;
+            int last = Math.min(hi, max);
+            for (int integer = ceilingInt(lo); integer <= last; integer = successor(integer)) {
+                action.accept(integer);
+                if (integer == last) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return done ? 0 : estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL | sized;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+}
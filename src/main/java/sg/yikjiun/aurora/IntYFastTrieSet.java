@@ -0,0 +1,354 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A y-fast trie over all ints, which takes O(n) space however sparse the keys are, unlike a
+ * van Emde Boas tree whose space grows with the universe.
+ *
+ * The keys are split into buckets of consecutive keys, each a sorted array of at most 64 keys.
+ * Every bucket has a representative no greater than its keys, and the representatives are kept
+ * in an x-fast trie: one hash map of prefixes per level, where each prefix knows the first and
+ * last bucket below it. Finding the bucket of a key is a binary search over the 32 levels for its
+ * longest prefix in the trie, so O(log log U), followed by a binary search in the bucket. Buckets
+ * split when full and merge with a neighbour when they drop below a quarter full, so the trie
+ * only changes once every O(log U) updates.
+ *
+ * Keys are compared in the trie with the sign bit flipped, so that unsigned prefix order matches
+ * signed int order.
+ *
+ * @author Lee Yik Jiun
+ */
+public class IntYFastTrieSet extends AbstractIntNavigableSet {
+    private static final int NUM_BITS = 32;
+    static final int MAX_BUCKET_SIZE = 2 * NUM_BITS;
+    static final int MIN_BUCKET_SIZE = MAX_BUCKET_SIZE / 4;
+    private static final int INITIAL_BUCKET_CAPACITY = 8;
+
+    private int size;
+    // levels[l] maps the l-bit prefixes of the representatives to their nodes
+    private IntObjectHashMap<Node>[] levels;
+    // maps the representatives to their buckets
+    private IntObjectHashMap<Bucket> buckets;
+    // the bucket with representative 0, which is never removed so that every key has a bucket
+    private Bucket head;
+
+    public IntYFastTrieSet() {
+        clear();
+    }
+
+    private static class Node {
+        Bucket first;
+        Bucket last;
+
+        Node(Bucket bucket) {
+            first = last = bucket;
+        }
+    }
+
+    private static class Bucket {
+        // unsigned, with the sign bit flipped
+        int representative;
+        int[] keys;
+        int size;
+        Bucket prev;
+        Bucket next;
+
+        Bucket(int representative, int[] keys, int size) {
+            this.representative = representative;
+            this.keys = keys;
+            this.size = size;
+        }
+
+        int indexOf(int key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+    }
+
+    private static int toUnsigned(int integer) {
+        return integer ^ Integer.MIN_VALUE;
+    }
+
+    private static int getPrefix(int u, int level) {
+        return level == 0 ? 0 : u >>> NUM_BITS - level;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static IntObjectHashMap<Node>[] newLevels() {
+        return new IntObjectHashMap[NUM_BITS];
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        levels = newLevels();
+        for (int l = 0; l < NUM_BITS; ++l) {
+            levels[l] = new IntObjectHashMap<>();
+        }
+        buckets = new IntObjectHashMap<>();
+        head = new Bucket(0, new int[INITIAL_BUCKET_CAPACITY], 0);
+        for (int l = 0; l < NUM_BITS; ++l) {
+            levels[l].put(0, new Node(head));
+        }
+        buckets.put(0, head);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsInt(int integer) {
+        return getBucket(toUnsigned(integer)).indexOf(integer) >= 0;
+    }
+
+    @Override
+    public boolean addInt(int integer) {
+        Bucket bucket = getBucket(toUnsigned(integer));
+        int i = bucket.indexOf(integer);
+        if (i >= 0) {
+            return false;
+        }
+
+        i = -i - 1;
+        if (bucket.size == bucket.keys.length) {
+            bucket.keys = Arrays.copyOf(bucket.keys, bucket.size << 1);
+        }
+        System.arraycopy(bucket.keys, i, bucket.keys, i + 1, bucket.size - i);
+        bucket.keys[i] = integer;
+        ++bucket.size;
+        ++size;
+
+        if (bucket.size == MAX_BUCKET_SIZE) {
+            split(bucket);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removeInt(int integer) {
+        Bucket bucket = getBucket(toUnsigned(integer));
+        int i = bucket.indexOf(integer);
+        if (i < 0) {
+            return false;
+        }
+
+        System.arraycopy(bucket.keys, i + 1, bucket.keys, i, bucket.size - i - 1);
+        --bucket.size;
+        --size;
+
+        if (bucket.size < MIN_BUCKET_SIZE) {
+            if (bucket.next != null) {
+                rebalance(bucket, bucket.next);
+            } else if (bucket.prev != null) {
+                rebalance(bucket.prev, bucket);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int firstInt() {
+        for (Bucket bucket = head; bucket != null; bucket = bucket.next) {
+            if (bucket.size > 0) {
+                return bucket.keys[0];
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int lastInt() {
+        for (Bucket bucket = levels[0].get(0).last; bucket != null; bucket = bucket.prev) {
+            if (bucket.size > 0) {
+                return bucket.keys[bucket.size - 1];
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int successor(int integer) {
+        Bucket bucket = getBucket(toUnsigned(integer));
+        int i = bucket.indexOf(integer);
+        i = i >= 0 ? i + 1 : -i - 1;
+        if (i < bucket.size) {
+            return bucket.keys[i];
+        }
+        for (bucket = bucket.next; bucket != null; bucket = bucket.next) {
+            if (bucket.size > 0) {
+                return bucket.keys[0];
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int predecessor(int integer) {
+        Bucket bucket = getBucket(toUnsigned(integer));
+        int i = bucket.indexOf(integer);
+        i = i >= 0 ? i - 1 : -i - 2;
+        if (i >= 0) {
+            return bucket.keys[i];
+        }
+        for (bucket = bucket.prev; bucket != null; bucket = bucket.prev) {
+            if (bucket.size > 0) {
+                return bucket.keys[bucket.size - 1];
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] integers = new int[size];
+        int k = 0;
+        for (Bucket bucket = head; bucket != null; bucket = bucket.next) {
+            System.arraycopy(bucket.keys, 0, integers, k, bucket.size);
+            k += bucket.size;
+        }
+        return integers;
+    }
+
+    /**
+     * Returns the bucket with the largest representative no greater than u.
+     */
+    private Bucket getBucket(int u) {
+        // binary search for the longest prefix of u in the trie, the root always being there
+        int lo = 0;
+        int hi = NUM_BITS;
+        while (lo < hi) {
+            int mid = lo + hi + 1 >>> 1;
+            boolean found = mid == NUM_BITS
+                ? buckets.get(u) != null
+                : levels[mid].get(getPrefix(u, mid)) != null;
+            if (found) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (lo == NUM_BITS) {
+            return buckets.get(u);
+        }
+
+        // the node has no child towards u, so all of its buckets are on the other side of u
+        Node node = levels[lo].get(getPrefix(u, lo));
+        boolean isRight = (u >>> NUM_BITS - 1 - lo & 1) == 1;
+        return isRight ? node.last : node.first.prev;
+    }
+
+    /**
+     * Moves the upper half of a full bucket to a new bucket.
+     */
+    private void split(Bucket bucket) {
+        int half = bucket.size >>> 1;
+        int[] keys = Arrays.copyOfRange(bucket.keys, half, Math.max(bucket.size, INITIAL_BUCKET_CAPACITY));
+        Bucket upper = new Bucket(toUnsigned(keys[0]), keys, bucket.size - half);
+        bucket.size = half;
+        insert(upper, bucket);
+    }
+
+    /**
+     * Merges two neighbouring buckets if they fit in one, or else evens them out.
+     */
+    private void rebalance(Bucket left, Bucket right) {
+        int total = left.size + right.size;
+        if (total < MAX_BUCKET_SIZE * 3 / 4) {
+            if (left.keys.length < total) {
+                left.keys = Arrays.copyOf(left.keys, total);
+            }
+            System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+            left.size = total;
+            remove(right);
+            return;
+        }
+
+        int[] keys = new int[total];
+        System.arraycopy(left.keys, 0, keys, 0, left.size);
+        System.arraycopy(right.keys, 0, keys, left.size, right.size);
+        int half = total >>> 1;
+        left.keys = Arrays.copyOf(keys, Math.max(half, INITIAL_BUCKET_CAPACITY));
+        left.size = half;
+        right.keys = Arrays.copyOfRange(keys, half, total);
+        right.size = total - half;
+        // the representative of right moves to its new first key
+        remove(right);
+        right.representative = toUnsigned(right.keys[0]);
+        insert(right, left);
+    }
+
+    /**
+     * Adds a bucket to the trie, right after its predecessor.
+     */
+    private void insert(Bucket bucket, Bucket prev) {
+        bucket.prev = prev;
+        bucket.next = prev.next;
+        if (prev.next != null) {
+            prev.next.prev = bucket;
+        }
+        prev.next = bucket;
+
+        int u = bucket.representative;
+        for (int l = 0; l < NUM_BITS; ++l) {
+            int prefix = getPrefix(u, l);
+            Node node = levels[l].get(prefix);
+            if (node == null) {
+                levels[l].put(prefix, new Node(bucket));
+            } else if (Integer.compareUnsigned(u, node.first.representative) < 0) {
+                node.first = bucket;
+            } else if (Integer.compareUnsigned(u, node.last.representative) > 0) {
+                node.last = bucket;
+            }
+        }
+        buckets.put(u, bucket);
+    }
+
+    /**
+     * Removes a bucket other than the head from the trie.
+     */
+    private void remove(Bucket bucket) {
+        assert bucket != head;
+        int u = bucket.representative;
+        buckets.remove(u);
+        for (int l = NUM_BITS - 1; l >= 0; --l) {
+            int prefix = getPrefix(u, l);
+            Node node = levels[l].get(prefix);
+            if (node.first == bucket && node.last == bucket) {
+                levels[l].remove(prefix);
+            } else if (node.first == bucket) {
+                node.first = bucket.next;
+            } else if (node.last == bucket) {
+                node.last = bucket.prev;
+            }
+        }
+
+        bucket.prev.next = bucket.next;
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+}
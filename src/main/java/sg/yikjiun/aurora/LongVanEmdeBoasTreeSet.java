@@ -0,0 +1,384 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A van Emde Boas tree over the whole signed long domain.
+ *
+ * The root splits a long into its signed high int, which indexes the cluster, and its low int,
+ * which is stored in a 32-bit {@link IntVanEmdeBoasTreeSet} with the sign bit flipped so that
+ * signed order within a cluster matches unsigned order of the low bits. As there, min and max are
+ * kept outside the clusters and the auxiliary summary holds the indices of the non-empty clusters.
+ * With 2^32 possible clusters the children always live in a hash map, and the 32-bit nodes below
+ * are sparse as well unless their clusters fill up.
+ *
+ * The primitive queries throw {@link NoSuchElementException} where there is no answer.
+ *
+ * @author Lee Yik Jiun
+ */
+public class LongVanEmdeBoasTreeSet extends AbstractSet<Long> {
+    static final float DEFAULT_DENSE_FILL_RATIO = 0.25f;
+
+    // a long, since the universe holds more than Integer.MAX_VALUE elements
+    private long size = 0;
+    private long max = Long.MIN_VALUE;
+    private long min = Long.MAX_VALUE;
+    private IntVanEmdeBoasTreeSet auxiliary;
+    private IntObjectHashMap<IntVanEmdeBoasTreeSet> children;
+    private final float denseFillRatio;
+
+    public LongVanEmdeBoasTreeSet() {
+        this(DEFAULT_DENSE_FILL_RATIO);
+    }
+
+    /**
+     * @param denseFillRatio passed on to the 32-bit clusters and the auxiliary summary, see
+     *                       {@link IntVanEmdeBoasTreeSet#IntVanEmdeBoasTreeSet(int, float)}.
+     */
+    public LongVanEmdeBoasTreeSet(float denseFillRatio) {
+        if (denseFillRatio < 0 || denseFillRatio > 1) {
+            throw new IllegalArgumentException("denseFillRatio must be in [0, 1]: " + denseFillRatio);
+        }
+        this.denseFillRatio = denseFillRatio;
+        clear();
+    }
+
+    private static int getHigherOrderBits(long l) {
+        return (int) (l >> 32);
+    }
+
+    private static int getLowerOrderBits(long l) {
+        return (int) l ^ Integer.MIN_VALUE;
+    }
+
+    private static long getBits(int higherOrderBits, int lowerOrderBits) {
+        return (long) higherOrderBits << 32 | (lowerOrderBits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    private IntVanEmdeBoasTreeSet newIntVanEmdeBoasTreeSet() {
+        return new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+    }
+
+    /**
+     * Returns the number of elements, or Integer.MAX_VALUE if there are more, as
+     * {@link java.util.Collection#size()} specifies.
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of elements, even past Integer.MAX_VALUE.
+     */
+    public long longSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        max = Long.MIN_VALUE;
+        min = Long.MAX_VALUE;
+        auxiliary = newIntVanEmdeBoasTreeSet();
+        children = new IntObjectHashMap<>();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((long) o);
+    }
+
+    public boolean containsLong(long l) {
+        if (size == 0 || l < min || l > max) {
+            return false;
+        }
+        if (l == min || l == max) {
+            return true;
+        }
+        IntVanEmdeBoasTreeSet child = children.get(getHigherOrderBits(l));
+        return child != null && child.containsInt(getLowerOrderBits(l));
+    }
+
+    @Override
+    public boolean add(Long l) {
+        return addLong(l);
+    }
+
+    public boolean addLong(long l) {
+        if (size == 0) {
+            min = max = l;
+            ++size;
+            return true;
+        }
+        if (l == min || l == max) {
+            return false;
+        }
+        if (size == 1) {
+            if (l < min) {
+                min = l;
+            } else {
+                max = l;
+            }
+            ++size;
+            return true;
+        }
+
+        if (l < min) {
+            long tmp = l;
+            l = min;
+            min = tmp;
+        } else if (l > max) {
+            long tmp = l;
+            l = max;
+            max = tmp;
+        }
+        int i = getHigherOrderBits(l);
+        IntVanEmdeBoasTreeSet child = children.get(i);
+        if (child == null) {
+            child = newIntVanEmdeBoasTreeSet();
+            children.put(i, child);
+            auxiliary.addInt(i);
+        }
+        if (!child.addInt(getLowerOrderBits(l))) {
+            return false;
+        }
+        ++size;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && removeLong((long) o);
+    }
+
+    public boolean removeLong(long l) {
+        if (size == 0 || l < min || l > max) {
+            return false;
+        }
+        if (size == 1) {
+            clear();
+            return true;
+        }
+        if (size == 2) {
+            if (l == min) {
+                min = max;
+            } else if (l == max) {
+                max = min;
+            } else {
+                return false;
+            }
+            --size;
+            return true;
+        }
+
+        // replace min or max by the first or last element in the clusters, then remove that instead
+        if (l == min) {
+            int i = auxiliary.firstInt();
+            l = min = getBits(i, children.get(i).firstInt());
+        } else if (l == max) {
+            int i = auxiliary.lastInt();
+            l = max = getBits(i, children.get(i).lastInt());
+        }
+        int i = getHigherOrderBits(l);
+        IntVanEmdeBoasTreeSet child = children.get(i);
+        if (child == null || !child.removeInt(getLowerOrderBits(l))) {
+            return false;
+        }
+        if (child.isEmpty()) {
+            children.remove(i);
+            auxiliary.removeInt(i);
+        }
+        --size;
+        return true;
+    }
+
+    /**
+     * Returns the smallest element.
+     *
+     * @throws NoSuchElementException if the set is empty.
+     */
+    public long firstLong() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return min;
+    }
+
+    /**
+     * Returns the largest element.
+     *
+     * @throws NoSuchElementException if the set is empty.
+     */
+    public long lastLong() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return max;
+    }
+
+    /**
+     * Returns the smallest element strictly greater than the given long.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    public long successor(long l) {
+        if (size == 0 || l >= max) {
+            throw new NoSuchElementException();
+        }
+        if (l < min) {
+            return min;
+        }
+        if (!auxiliary.isEmpty()) {
+            int i = getHigherOrderBits(l);
+            int j = getLowerOrderBits(l);
+            IntVanEmdeBoasTreeSet child = children.get(i);
+            if (child != null && j < child.lastInt()) {
+                return getBits(i, child.successor(j));
+            }
+            if (i < auxiliary.lastInt()) {
+                i = auxiliary.successor(i);
+                return getBits(i, children.get(i).firstInt());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the largest element strictly less than the given long.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    public long predecessor(long l) {
+        if (size == 0 || l <= min) {
+            throw new NoSuchElementException();
+        }
+        if (l > max) {
+            return max;
+        }
+        if (!auxiliary.isEmpty()) {
+            int i = getHigherOrderBits(l);
+            int j = getLowerOrderBits(l);
+            IntVanEmdeBoasTreeSet child = children.get(i);
+            if (child != null && j > child.firstInt()) {
+                return getBits(i, child.predecessor(j));
+            }
+            if (i > auxiliary.firstInt()) {
+                i = auxiliary.predecessor(i);
+                return getBits(i, children.get(i).lastInt());
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the smallest element greater than or equal to the given long.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    public long ceilingLong(long l) {
+        return containsLong(l) ? l : successor(l);
+    }
+
+    /**
+     * Returns the largest element less than or equal to the given long.
+     *
+     * @throws NoSuchElementException if there is no such element.
+     */
+    public long floorLong(long l) {
+        return containsLong(l) ? l : predecessor(l);
+    }
+
+    /**
+     * Returns the elements in ascending order.
+     *
+     * @throws IllegalStateException if there are too many elements for an array.
+     */
+    public long[] toLongArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many elements for an array: " + size);
+        }
+        long[] longs = new long[(int) size];
+        if (size == 0) {
+            return longs;
+        }
+
+        int k = 0;
+        longs[k++] = min;
+        for (int i : auxiliary.toIntArray()) {
+            for (int j : children.get(i).toIntArray()) {
+                longs[k++] = getBits(i, j);
+            }
+        }
+        if (size > 1) {
+            longs[k++] = max;
+        }
+        assert k == size;
+        return longs;
+    }
+
+    /**
+     * Returns an iterator in ascending order whose {@link PrimitiveIterator.OfLong#nextLong()}
+     * does not box.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private boolean hasNext = size > 0;
+            private long next = hasNext ? min : 0;
+            private long last;
+            private boolean canRemove = false;
+
+            @Override
+            public boolean hasNext() {
+                return hasNext;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                hasNext = last < max;
+                if (hasNext) {
+                    next = successor(last);
+                }
+                canRemove = true;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                removeLong(last);
+                canRemove = false;
+            }
+        };
+    }
+}
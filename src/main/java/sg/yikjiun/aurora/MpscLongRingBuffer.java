@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free queue of longs for many producers and one consumer, after Dmitry Vyukov's
+ * bounded MPMC queue.
+ *
+ * Each slot has a sequence number that says whose turn it is. A producer claims the slot at the
+ * tail with a compare and set on the tail, writes the element, and then sets the sequence to tell
+ * the consumer that the slot is full. The consumer, which owns the head, takes elements in order
+ * until it reaches a slot that is not yet full, and then hands each slot back to the producers a
+ * lap later. Producers never wait for each other except to retry a lost compare and set.
+ *
+ * @author Lee Yik Jiun
+ */
+final class MpscLongRingBuffer {
+    private final long[] elements;
+    // slot i is free for the producer of position p iff sequences[i] == p, and full for the
+    // consumer at position p iff sequences[i] == p + 1
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // written by the consumer only, read by others to see how far it got
+    private volatile long head = 0;
+
+    /**
+     * @param capacity a power of two.
+     */
+    MpscLongRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        elements = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * Adds the element, unless the buffer is full.
+     *
+     * @return whether the element was added.
+     */
+    boolean offer(long element) {
+        while (true) {
+            long position = tail.get();
+            int i = (int) position & mask;
+            long sequence = sequences.get(i);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[i] = element;
+                    // the ordered store publishes the element before the sequence
+                    sequences.lazySet(i, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the consumer has not taken the element a lap behind
+                return false;
+            }
+            // else another producer claimed the slot first
+        }
+    }
+
+    /**
+     * Moves up to max elements into out, in the order they were claimed. Only the consumer may
+     * call this.
+     *
+     * @return the number of elements moved.
+     */
+    int drain(long[] out, int max) {
+        long position = head;
+        int n = 0;
+        while (n < max) {
+            int i = (int) position & mask;
+            if (sequences.get(i) != position + 1) {
+                break;
+            }
+            out[n++] = elements[i];
+            sequences.lazySet(i, position + elements.length);
+            ++position;
+        }
+        head = position;
+        return n;
+    }
+
+    /**
+     * Returns the number of elements claimed by producers so far, including ones still being
+     * written.
+     */
+    long getTail() {
+        return tail.get();
+    }
+
+    /**
+     * Returns the number of elements drained so far.
+     */
+    long getHead() {
+        return head;
+    }
+}
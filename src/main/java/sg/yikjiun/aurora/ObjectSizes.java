@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+/**
+ * Estimates the heap footprint of objects and arrays, assuming a 64-bit HotSpot JVM with
+ * compressed references and class pointers, which is the default for heaps below 32GB.
+ *
+ * @author Lee Yik Jiun
+ */
+final class ObjectSizes {
+    static final int OBJECT_HEADER_BYTES = 12;
+    static final int ARRAY_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+
+    private ObjectSizes() {
+    }
+
+    static long align(long bytes) {
+        return bytes + 7 & ~7L;
+    }
+
+    /**
+     * Returns the size of an object whose fields take fieldBytes in total.
+     */
+    static long getObjectBytes(int fieldBytes) {
+        return align(OBJECT_HEADER_BYTES + fieldBytes);
+    }
+
+    static long getArrayBytes(long length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + length * elementBytes);
+    }
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * A van Emde Boas tree stored outside the heap, in direct memory or in a memory mapped file.
+ *
+ * Every node has a fixed place in an implicit layout, so opening an existing file gives a set that
+ * is ready to query without reading it. A node of b bits takes:
+ * <ul>
+ *     <li>b <= 12: a bitmap of 2^b bits, preceded by a long marking its non-empty words if b > 6.</li>
+ *     <li>b > 12: ~min and max as ints, then the auxiliary summary of the ceil(b / 2) higher order
+ *     bits, then the 2^ceil(b / 2) clusters of the floor(b / 2) lower order bits.</li>
+ * </ul>
+ * Storing ~min means that a node of all zero bytes is empty, so untouched pages of a sparse file
+ * and freshly allocated memory need no initialization. Values in a node are unsigned, and a 32-bit
+ * set flips the sign bit of its keys to keep them in signed order.
+ *
+ * The layout takes {@link #getCapacity} bytes whatever the size: about 2MB for 24 bits, 48MB for
+ * 28 bits and 643MB for 32 bits. A mapped file only uses disk and memory for the pages it touches,
+ * but the JVM zeroes direct memory up front, so {@link #allocate} is limited to
+ * {@link #MAX_ALLOCATE_BITS} bits. Neither is freed until the set is garbage collected unless it is
+ * {@link #close() closed}.
+ *
+ * The file starts with a 64 byte little endian header: the magic number, the format version, the
+ * number of bits and the size.
+ *
+ * @author Lee Yik Jiun
+ */
+public class OffHeapIntVanEmdeBoasTreeSet extends AbstractIntNavigableSet implements AutoCloseable {
+    public static final int MAX_ALLOCATE_BITS = 28;
+    static final int MAGIC = 0x76454221;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int LEAF_BITS = 12;
+    private static final int VERSION_OFFSET = 4;
+    private static final int NUM_BITS_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final long ROOT = HEADER_SIZE;
+    private static final int DEFAULT_CHUNK_SHIFT = 30;
+    // NODE_SIZES[b] is the number of bytes taken by a node of b bits
+    private static final long[] NODE_SIZES = new long[33];
+
+    static {
+        for (int b = 1; b <= 32; ++b) {
+            if (b <= 6) {
+                NODE_SIZES[b] = 8;
+            } else if (b <= LEAF_BITS) {
+                NODE_SIZES[b] = 8 + (8L << b - 6);
+            } else {
+                int lowerBits = b >> 1;
+                int higherBits = b - lowerBits;
+                NODE_SIZES[b] = 8 + NODE_SIZES[higherBits] + (NODE_SIZES[lowerBits] << higherBits);
+            }
+        }
+    }
+
+    private final ChunkedByteBuffer buffer;
+    private final int numBits;
+    private long size;
+
+    private OffHeapIntVanEmdeBoasTreeSet(ChunkedByteBuffer buffer, int numBits, long size) {
+        this.buffer = buffer;
+        this.numBits = numBits;
+        this.size = size;
+    }
+
+    /**
+     * Returns an empty set of keys in [0, 2^numBits) in direct memory, which takes and zeroes
+     * {@link #getCapacity} bytes right away. Use {@link #create} for more bits.
+     *
+     * @throws IllegalArgumentException if numBits is not in [1, {@link #MAX_ALLOCATE_BITS}].
+     */
+    public static OffHeapIntVanEmdeBoasTreeSet allocate(int numBits) {
+        return allocate(numBits, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static OffHeapIntVanEmdeBoasTreeSet allocate(int numBits, int chunkShift) {
+        if (numBits < 1 || numBits > MAX_ALLOCATE_BITS) {
+            throw new IllegalArgumentException("numBits must be in [1, " + MAX_ALLOCATE_BITS + "]: " + numBits);
+        }
+        ChunkedByteBuffer buffer = ChunkedByteBuffer.allocateDirect(getCapacity(numBits), chunkShift);
+        writeHeader(buffer, numBits);
+        return new OffHeapIntVanEmdeBoasTreeSet(buffer, numBits, 0);
+    }
+
+    /**
+     * Creates a new file holding an empty set of keys in [0, 2^numBits), or of all ints if
+     * numBits is 32. The file is sparse where the file system supports it.
+     */
+    public static OffHeapIntVanEmdeBoasTreeSet create(Path path, int numBits) throws IOException {
+        return create(path, numBits, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static OffHeapIntVanEmdeBoasTreeSet create(Path path, int numBits, int chunkShift) throws IOException {
+        checkNumBits(numBits);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ChunkedByteBuffer buffer = ChunkedByteBuffer.map(channel, getCapacity(numBits), chunkShift);
+            writeHeader(buffer, numBits);
+            return new OffHeapIntVanEmdeBoasTreeSet(buffer, numBits, 0);
+        }
+    }
+
+    /**
+     * Maps a file written by a set from {@link #create}, without reading its elements.
+     *
+     * @throws IOException if the file is not such a set, or was written in another format version.
+     */
+    public static OffHeapIntVanEmdeBoasTreeSet open(Path path) throws IOException {
+        return open(path, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static OffHeapIntVanEmdeBoasTreeSet open(Path path, int chunkShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                continue;
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a van Emde Boas tree set: " + path);
+            }
+            int version = header.getInt(VERSION_OFFSET);
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + ": " + path);
+            }
+            int numBits = header.getInt(NUM_BITS_OFFSET);
+            if (numBits < 1 || numBits > 32 || channel.size() < getCapacity(numBits)) {
+                throw new IOException("Corrupt van Emde Boas tree set: " + path);
+            }
+            ChunkedByteBuffer buffer = ChunkedByteBuffer.map(channel, getCapacity(numBits), chunkShift);
+            return new OffHeapIntVanEmdeBoasTreeSet(buffer, numBits, header.getLong(SIZE_OFFSET));
+        }
+    }
+
+    private static void checkNumBits(int numBits) {
+        if (numBits < 1 || numBits > 32) {
+            throw new IllegalArgumentException("numBits must be in [1, 32]: " + numBits);
+        }
+    }
+
+    /**
+     * Returns the number of bytes a set of numBits takes, in direct memory or in its file.
+     */
+    public static long getCapacity(int numBits) {
+        return HEADER_SIZE + NODE_SIZES[numBits];
+    }
+
+    private static void writeHeader(ChunkedByteBuffer buffer, int numBits) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(NUM_BITS_OFFSET, numBits);
+        buffer.putLong(SIZE_OFFSET, 0);
+    }
+
+    /**
+     * Writes the changes back to the file, if the set is memory mapped.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Frees the direct memory or unmaps the file right away, without forcing it first. The set
+     * must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        buffer.close();
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void setSize(long size) {
+        this.size = size;
+        buffer.putLong(SIZE_OFFSET, size);
+    }
+
+    private boolean isInUniverse(int integer) {
+        return numBits == 32 || integer >>> numBits == 0;
+    }
+
+    private long toKey(int integer) {
+        return numBits == 32 ? (integer ^ Integer.MIN_VALUE) & 0xFFFFFFFFL : integer;
+    }
+
+    private int toInteger(long key) {
+        return numBits == 32 ? (int) key ^ Integer.MIN_VALUE : (int) key;
+    }
+
+    @Override
+    public boolean containsInt(int integer) {
+        return isInUniverse(integer) && contains(ROOT, numBits, toKey(integer));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the integer does not fit in numBits bits.
+     */
+    @Override
+    public boolean addInt(int integer) {
+        if (!isInUniverse(integer)) {
+            throw new IllegalArgumentException(integer + " does not fit in " + numBits + " bits");
+        }
+        if (!add(ROOT, numBits, toKey(integer))) {
+            return false;
+        }
+        setSize(size + 1);
+        return true;
+    }
+
+    @Override
+    public boolean removeInt(int integer) {
+        if (!isInUniverse(integer) || !remove(ROOT, numBits, toKey(integer))) {
+            return false;
+        }
+        setSize(size - 1);
+        return true;
+    }
+
+    @Override
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return toInteger(getFirst(ROOT, numBits));
+    }
+
+    @Override
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return toInteger(getLast(ROOT, numBits));
+    }
+
+    @Override
+    public int successor(int integer) {
+        if (!isInUniverse(integer)) {
+            // below or above the universe
+            if (integer < 0) {
+                return firstInt();
+            }
+            throw new NoSuchElementException();
+        }
+        long key = getSuccessor(ROOT, numBits, toKey(integer));
+        if (key < 0) {
+            throw new NoSuchElementException();
+        }
+        return toInteger(key);
+    }
+
+    @Override
+    public int predecessor(int integer) {
+        if (!isInUniverse(integer)) {
+            if (integer < 0) {
+                throw new NoSuchElementException();
+            }
+            return lastInt();
+        }
+        long key = getPredecessor(ROOT, numBits, toKey(integer));
+        if (key < 0) {
+            throw new NoSuchElementException();
+        }
+        return toInteger(key);
+    }
+
+    private static boolean isLeaf(int b) {
+        return b <= LEAF_BITS;
+    }
+
+    /**
+     * Works for both kinds of nodes, since an empty node starts with a zero long.
+     */
+    private boolean isEmpty(long node) {
+        return buffer.getLong(node) == 0;
+    }
+
+    private long getMin(long node) {
+        return ~buffer.getInt(node) & 0xFFFFFFFFL;
+    }
+
+    private long getMax(long node) {
+        return buffer.getInt(node + 4) & 0xFFFFFFFFL;
+    }
+
+    private void setMin(long node, long min) {
+        buffer.putInt(node, ~(int) min);
+    }
+
+    private void setMax(long node, long max) {
+        buffer.putInt(node + 4, (int) max);
+    }
+
+    private static long getAuxiliary(long node) {
+        return node + 8;
+    }
+
+    private static long getCluster(long node, int b, long i) {
+        int lowerBits = b >> 1;
+        return node + 8 + NODE_SIZES[b - lowerBits] + i * NODE_SIZES[lowerBits];
+    }
+
+    /**
+     * Requires a non-empty node.
+     */
+    private long getFirst(long node, int b) {
+        return isLeaf(b) ? getBitmapFirst(node, b) : getMin(node);
+    }
+
+    /**
+     * Requires a non-empty node.
+     */
+    private long getLast(long node, int b) {
+        return isLeaf(b) ? getBitmapLast(node, b) : getMax(node);
+    }
+
+    private boolean contains(long node, int b, long x) {
+        if (isLeaf(b)) {
+            return (buffer.getLong(getWord(node, b, x)) & 1L << x) != 0;
+        }
+        if (isEmpty(node)) {
+            return false;
+        }
+        long min = getMin(node);
+        long max = getMax(node);
+        if (x == min || x == max) {
+            return true;
+        }
+        if (x < min || x > max) {
+            return false;
+        }
+        int lowerBits = b >> 1;
+        return contains(getCluster(node, b, x >>> lowerBits), lowerBits, x & (1L << lowerBits) - 1);
+    }
+
+    private boolean add(long node, int b, long x) {
+        if (isLeaf(b)) {
+            return addToBitmap(node, b, x);
+        }
+        if (isEmpty(node)) {
+            setMin(node, x);
+            setMax(node, x);
+            return true;
+        }
+        long min = getMin(node);
+        long max = getMax(node);
+        if (x == min || x == max) {
+            return false;
+        }
+        if (min == max) {
+            if (x < min) {
+                setMin(node, x);
+            } else {
+                setMax(node, x);
+            }
+            return true;
+        }
+
+        if (x < min) {
+            setMin(node, x);
+            x = min;
+        } else if (x > max) {
+            setMax(node, x);
+            x = max;
+        }
+        int lowerBits = b >> 1;
+        long i = x >>> lowerBits;
+        long cluster = getCluster(node, b, i);
+        boolean wasEmpty = isEmpty(cluster);
+        if (!add(cluster, lowerBits, x & (1L << lowerBits) - 1)) {
+            return false;
+        }
+        if (wasEmpty) {
+            add(getAuxiliary(node), b - lowerBits, i);
+        }
+        return true;
+    }
+
+    private boolean remove(long node, int b, long x) {
+        if (isLeaf(b)) {
+            return removeFromBitmap(node, b, x);
+        }
+        if (isEmpty(node)) {
+            return false;
+        }
+        long min = getMin(node);
+        long max = getMax(node);
+        if (x < min || x > max) {
+            return false;
+        }
+        if (min == max) {
+            buffer.putLong(node, 0);
+            return true;
+        }
+
+        int lowerBits = b >> 1;
+        int higherBits = b - lowerBits;
+        long auxiliary = getAuxiliary(node);
+        if (isEmpty(auxiliary)) {
+            if (x == min) {
+                setMin(node, max);
+            } else if (x == max) {
+                setMax(node, min);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        // replace min or max by the first or last element in the clusters, then remove that instead
+        if (x == min) {
+            long i = getFirst(auxiliary, higherBits);
+            x = i << lowerBits | getFirst(getCluster(node, b, i), lowerBits);
+            setMin(node, x);
+        } else if (x == max) {
+            long i = getLast(auxiliary, higherBits);
+            x = i << lowerBits | getLast(getCluster(node, b, i), lowerBits);
+            setMax(node, x);
+        }
+        long i = x >>> lowerBits;
+        long cluster = getCluster(node, b, i);
+        if (!remove(cluster, lowerBits, x & (1L << lowerBits) - 1)) {
+            return false;
+        }
+        if (isEmpty(cluster)) {
+            remove(auxiliary, higherBits, i);
+        }
+        return true;
+    }
+
+    /**
+     * Returns -1 if there is no successor.
+     */
+    private long getSuccessor(long node, int b, long x) {
+        if (isLeaf(b)) {
+            return getBitmapSuccessor(node, b, x);
+        }
+        if (isEmpty(node) || x >= getMax(node)) {
+            return -1;
+        }
+        if (x < getMin(node)) {
+            return getMin(node);
+        }
+
+        int lowerBits = b >> 1;
+        long i = x >>> lowerBits;
+        long j = x & (1L << lowerBits) - 1;
+        long cluster = getCluster(node, b, i);
+        if (!isEmpty(cluster) && j < getLast(cluster, lowerBits)) {
+            return i << lowerBits | getSuccessor(cluster, lowerBits, j);
+        }
+        i = getSuccessor(getAuxiliary(node), b - lowerBits, i);
+        if (i < 0) {
+            return getMax(node);
+        }
+        return i << lowerBits | getFirst(getCluster(node, b, i), lowerBits);
+    }
+
+    /**
+     * Returns -1 if there is no predecessor.
+     */
+    private long getPredecessor(long node, int b, long x) {
+        if (isLeaf(b)) {
+            return getBitmapPredecessor(node, b, x);
+        }
+        if (isEmpty(node) || x <= getMin(node)) {
+            return -1;
+        }
+        if (x > getMax(node)) {
+            return getMax(node);
+        }
+
+        int lowerBits = b >> 1;
+        long i = x >>> lowerBits;
+        long j = x & (1L << lowerBits) - 1;
+        long cluster = getCluster(node, b, i);
+        if (!isEmpty(cluster) && j > getFirst(cluster, lowerBits)) {
+            return i << lowerBits | getPredecessor(cluster, lowerBits, j);
+        }
+        i = getPredecessor(getAuxiliary(node), b - lowerBits, i);
+        if (i < 0) {
+            return getMin(node);
+        }
+        return i << lowerBits | getLast(getCluster(node, b, i), lowerBits);
+    }
+
+    /**
+     * Returns the offset of the word holding bit x of a bitmap node, whose first long is the
+     * summary of its words if b > 6.
+     */
+    private static long getWord(long node, int b, long x) {
+        return b <= 6 ? node : node + 8 + (x >>> 6 << 3);
+    }
+
+    private boolean addToBitmap(long node, int b, long x) {
+        long word = getWord(node, b, x);
+        long bits = buffer.getLong(word);
+        long bit = 1L << x;
+        if ((bits & bit) != 0) {
+            return false;
+        }
+        buffer.putLong(word, bits | bit);
+        if (b > 6 && bits == 0) {
+            buffer.putLong(node, buffer.getLong(node) | 1L << (x >>> 6));
+        }
+        return true;
+    }
+
+    private boolean removeFromBitmap(long node, int b, long x) {
+        long word = getWord(node, b, x);
+        long bits = buffer.getLong(word);
+        long bit = 1L << x;
+        if ((bits & bit) == 0) {
+            return false;
+        }
+        buffer.putLong(word, bits & ~bit);
+        if (b > 6 && bits == bit) {
+            buffer.putLong(node, buffer.getLong(node) & ~(1L << (x >>> 6)));
+        }
+        return true;
+    }
+
+    private long getBitmapFirst(long node, int b) {
+        if (b <= 6) {
+            return Long.numberOfTrailingZeros(buffer.getLong(node));
+        }
+        long w = Long.numberOfTrailingZeros(buffer.getLong(node));
+        return w << 6 | Long.numberOfTrailingZeros(buffer.getLong(node + 8 + (w << 3)));
+    }
+
+    private long getBitmapLast(long node, int b) {
+        if (b <= 6) {
+            return 63 - Long.numberOfLeadingZeros(buffer.getLong(node));
+        }
+        long w = 63 - Long.numberOfLeadingZeros(buffer.getLong(node));
+        return w << 6 | 63 - Long.numberOfLeadingZeros(buffer.getLong(node + 8 + (w << 3)));
+    }
+
+    private long getBitmapSuccessor(long node, int b, long x) {
+        long bits = buffer.getLong(getWord(node, b, x)) & -2L << x;
+        if (bits != 0) {
+            return x & ~63L | Long.numberOfTrailingZeros(bits);
+        }
+        if (b <= 6) {
+            return -1;
+        }
+        long summary = buffer.getLong(node) & -2L << (x >>> 6);
+        if (summary == 0) {
+            return -1;
+        }
+        long w = Long.numberOfTrailingZeros(summary);
+        return w << 6 | Long.numberOfTrailingZeros(buffer.getLong(node + 8 + (w << 3)));
+    }
+
+    private long getBitmapPredecessor(long node, int b, long x) {
+        long bits = buffer.getLong(getWord(node, b, x)) & (1L << x) - 1;
+        if (bits != 0) {
+            return x & ~63L | 63 - Long.numberOfLeadingZeros(bits);
+        }
+        if (b <= 6) {
+            return -1;
+        }
+        long summary = buffer.getLong(node) & (1L << (x >>> 6)) - 1;
+        if (summary == 0) {
+            return -1;
+        }
+        long w = 63 - Long.numberOfLeadingZeros(summary);
+        return w << 6 | 63 - Long.numberOfLeadingZeros(buffer.getLong(node + 8 + (w << 3)));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes and reads strictly ascending ints as varint encoded deltas, so that dense keys take about
+ * a byte each whatever the size of the universe.
+ *
+ * A record starts with a 24 byte little endian header: the magic number of the set type, the
+ * format version, the number of bits, the number of keys and the number of payload bytes. The
+ * payload holds the first key minus Integer.MIN_VALUE and then the difference to the previous key,
+ * each as an unsigned LEB128 varint. Knowing the payload length up front lets the reader take
+ * exactly one record off the channel, so records can follow each other.
+ *
+ * @author Lee Yik Jiun
+ */
+final class SortedIntCodec {
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    private static final int BUFFER_BYTES = 1 << 16;
+    // the largest delta is 2^32 - 1
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private SortedIntCodec() {
+    }
+
+    /**
+     * Writes keys[0, n), which must be strictly ascending.
+     */
+    static void write(WritableByteChannel channel, int magic, int numBits, int[] keys, int n) throws IOException {
+        long payloadBytes = 0;
+        long prev = Integer.MIN_VALUE;
+        for (int k = 0; k < n; ++k) {
+            payloadBytes += getVarIntBytes(keys[k] - prev);
+            prev = keys[k];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(magic).putInt(VERSION).putInt(numBits).putInt(n).putLong(payloadBytes);
+        prev = Integer.MIN_VALUE;
+        for (int k = 0; k < n; ++k) {
+            if (buffer.remaining() < MAX_VARINT_BYTES) {
+                flush(channel, buffer);
+            }
+            long delta = keys[k] - prev;
+            while (delta >= 0x80) {
+                buffer.put((byte) (delta | 0x80));
+                delta >>>= 7;
+            }
+            buffer.put((byte) delta);
+            prev = keys[k];
+        }
+        flush(channel, buffer);
+    }
+
+    private static int getVarIntBytes(long delta) {
+        return (63 - Long.numberOfLeadingZeros(delta | 1)) / 7 + 1;
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads one record, header first, so that the caller can size the set before taking the keys.
+     */
+    static final class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final int numBits;
+        private final int size;
+        // payload bytes not yet read from the channel
+        private long unread;
+
+        /**
+         * @throws IOException if the header does not have the given magic number or version.
+         */
+        Reader(ReadableByteChannel channel, int magic) throws IOException {
+            this.channel = channel;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header);
+            if (header.getInt() != magic) {
+                throw new IOException("Unexpected magic number");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            numBits = header.getInt();
+            size = header.getInt();
+            unread = header.getLong();
+            if (size < 0 || unread < size || unread > (long) size * MAX_VARINT_BYTES) {
+                throw new IOException("Corrupt header: size " + size + ", payload bytes " + unread);
+            }
+            buffer = ByteBuffer.allocate((int) Math.min(BUFFER_BYTES, unread)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+        }
+
+        int getNumBits() {
+            return numBits;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the keys in ascending order.
+         *
+         * @throws IOException if the keys are not strictly ascending or do not fill the payload.
+         */
+        int[] readKeys() throws IOException {
+            int[] keys = new int[size];
+            long prev = Integer.MIN_VALUE;
+            for (int k = 0; k < size; ++k) {
+                long delta = readVarInt();
+                long key = prev + delta;
+                if (k > 0 && delta == 0 || key > Integer.MAX_VALUE) {
+                    throw new IOException("Corrupt keys at " + k);
+                }
+                keys[k] = (int) key;
+                prev = key;
+            }
+            if (buffer.hasRemaining() || unread > 0) {
+                throw new IOException("Corrupt payload: trailing bytes");
+            }
+            return keys;
+        }
+
+        private long readVarInt() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+                if (!buffer.hasRemaining()) {
+                    fill();
+                }
+                byte b = buffer.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt varint");
+        }
+
+        private void fill() throws IOException {
+            if (unread == 0) {
+                throw new IOException("Corrupt payload: too short");
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), unread));
+            readFully(buffer);
+            unread -= buffer.limit();
+        }
+
+        /**
+         * Reads until buffer is full, then flips it.
+         */
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
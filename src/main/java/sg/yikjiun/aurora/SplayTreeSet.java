@@ -16,9 +16,14 @@
 
 package sg.yikjiun.aurora;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
@@ -28,8 +33,16 @@ import javax.annotation.Nullable;
  * @author Lee Yik Jiun
  */
 public class SplayTreeSet<E extends Comparable<E>> implements Set<E> {
+    // an element and 3 links
+    private static final long NODE_BYTES = ObjectSizes.getObjectBytes(4 * ObjectSizes.REFERENCE_BYTES);
+    // "SPLY"
+    static final int MAGIC = 0x53504c59;
+
     Node<E> root = null;
     private int size = 0;
+    // the number of searches and the nodes they visited, for the average access depth
+    private long accessCount = 0;
+    private long accessDepthSum = 0;
 
     @Override
     public int size() {
@@ -77,6 +90,7 @@ public class SplayTreeSet<E extends Comparable<E>> implements Set<E> {
     @CheckReturnValue
     @Nullable
     private Node<E> insert(@Nonnull Node<E> newNode) {
+        ++accessCount;
         if (root == null) {
             root = newNode;
         } else {
@@ -84,6 +98,7 @@ public class SplayTreeSet<E extends Comparable<E>> implements Set<E> {
             Node<E> node = root;
             boolean isLeft = true;
             while (node != null) {
+                ++accessDepthSum;
                 parent = node;
                 int cmp = node.e.compareTo(newNode.e);
                 if (cmp < 0) {
@@ -181,7 +196,9 @@ public class SplayTreeSet<E extends Comparable<E>> implements Set<E> {
     @Nullable
     private Node<E> find(E e) {
         Node<E> node = root;
+        ++accessCount;
         while (node != null) {
+            ++accessDepthSum;
             int cmp = node.e.compareTo(e);
             if (cmp < 0) {
                 node = node.right;
@@ -225,6 +242,189 @@ public class SplayTreeSet<E extends Comparable<E>> implements Set<E> {
         size = 0;
     }
 
+    /**
+     * Writes the elements in order to the channel as varint encoded deltas of their int keys, see
+     * {@link SortedIntCodec}.
+     *
+     * @param toInt maps the elements to distinct ints in the same order, such as Integer::intValue.
+     */
+    public void writeTo(WritableByteChannel channel, ToIntFunction<? super E> toInt) throws IOException {
+        int[] keys = new int[size];
+        int k = 0;
+        for (Node<E> node = getFirst(); node != null; node = getNext(node)) {
+            keys[k++] = toInt.applyAsInt(node.e);
+        }
+        SortedIntCodec.write(channel, MAGIC, Integer.SIZE, keys, k);
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(WritableByteChannel, ToIntFunction)}. The sorted keys
+     * are built straight into a balanced tree rather than added one by one.
+     *
+     * @param fromInt the inverse of the toInt the set was written with, such as Integer::valueOf.
+     * @throws IOException if the channel does not hold such a set.
+     */
+    public static <E extends Comparable<E>> SplayTreeSet<E> readFrom(
+        ReadableByteChannel channel, IntFunction<? extends E> fromInt) throws IOException {
+        int[] keys = new SortedIntCodec.Reader(channel, MAGIC).readKeys();
+        SplayTreeSet<E> set = new SplayTreeSet<>();
+        set.root = build(keys, 0, keys.length, fromInt);
+        set.size = keys.length;
+        return set;
+    }
+
+    /**
+     * Returns the root of a balanced tree of keys[from, to), whose depth is only log n so the
+     * recursion is safe.
+     */
+    @Nullable
+    private static <E extends Comparable<E>> Node<E> build(
+        int[] keys, int from, int to, IntFunction<? extends E> fromInt) {
+        if (from == to) {
+            return null;
+        }
+        int mid = from + to >>> 1;
+        Node<E> node = new Node<>(fromInt.apply(keys[mid]));
+        node.linkLeft(build(keys, from, mid, fromInt));
+        node.linkRight(build(keys, mid + 1, to, fromInt));
+        return node;
+    }
+
+    @Nullable
+    private Node<E> getFirst() {
+        Node<E> node = root;
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the next node in order, following the parent links instead of keeping a stack.
+     */
+    @Nullable
+    private static <E extends Comparable<E>> Node<E> getNext(Node<E> node) {
+        Node<E> successor = node.getSuccessor();
+        if (successor != null) {
+            return successor;
+        }
+        while (node.parent != null && node == node.parent.right) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+
+    /**
+     * Returns the shape of the tree. Everything but the height is kept up to date by the
+     * operations, but the height walks the whole tree without allocating, so a call is O(n). Take
+     * it at the pace of a metrics scrape rather than on a hot path.
+     */
+    public Stats getStats() {
+        return new Stats(size, getHeight(), accessCount, accessDepthSum,
+            ObjectSizes.getObjectBytes(ObjectSizes.REFERENCE_BYTES + Integer.BYTES + 2 * Long.BYTES)
+                + size * NODE_BYTES);
+    }
+
+    /**
+     * Returns the number of nodes on the longest path from the root, by a depth first walk that
+     * follows the parent links back up instead of keeping a stack, since a splay tree can be as
+     * deep as it is large.
+     */
+    private int getHeight() {
+        int height = 0;
+        int depth = 0;
+        Node<E> prev = null;
+        Node<E> node = root;
+        while (node != null) {
+            Node<E> next;
+            if (prev == node.parent) {
+                // first visit
+                height = Math.max(height, ++depth);
+                next = node.left != null ? node.left : node.right != null ? node.right : node.parent;
+            } else if (prev == node.left && node.right != null) {
+                next = node.right;
+            } else {
+                next = node.parent;
+            }
+            if (next == node.parent) {
+                --depth;
+            }
+            prev = node;
+            node = next;
+        }
+        return height;
+    }
+
+    /**
+     * A snapshot of the shape of a set, see {@link #getStats()}.
+     */
+    public static final class Stats {
+        private final int nodeCount;
+        private final int height;
+        private final long accessCount;
+        private final long accessDepthSum;
+        private final long retainedBytes;
+
+        Stats(int nodeCount, int height, long accessCount, long accessDepthSum, long retainedBytes) {
+            this.nodeCount = nodeCount;
+            this.height = height;
+            this.accessCount = accessCount;
+            this.accessDepthSum = accessDepthSum;
+            this.retainedBytes = retainedBytes;
+        }
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Returns the number of nodes on the longest path from the root, 0 for an empty tree.
+         * This is the one value that costs a walk of the tree to take.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns the number of searches since the set was created, by contains, add and remove.
+         */
+        public long getAccessCount() {
+            return accessCount;
+        }
+
+        /**
+         * Returns the total number of nodes visited by those searches. Together with the access
+         * count, this gives the average access depth over any interval between two snapshots.
+         */
+        public long getAccessDepthSum() {
+            return accessDepthSum;
+        }
+
+        /**
+         * Returns the average number of nodes visited by a search since the set was created.
+         */
+        public double getAverageAccessDepth() {
+            return accessCount == 0 ? 0 : (double) accessDepthSum / accessCount;
+        }
+
+        /**
+         * Returns the estimated heap bytes taken by the set and its nodes, but not by the
+         * elements, see {@link ObjectSizes}.
+         */
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{nodeCount=" + nodeCount
+                + ", height=" + height
+                + ", accessCount=" + accessCount
+                + ", averageAccessDepth=" + getAverageAccessDepth()
+                + ", retainedBytes=" + retainedBytes + "}";
+        }
+    }
+
     static class Node<E extends Comparable<E>> {
         E e;
         @Nullable Node<E> parent;
@@ -19,8 +19,10 @@ package sg.yikjiun.aurora;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 /**
@@ -53,6 +55,51 @@ public class ArrayUtilsTest {
         assertArrayEquals(control, ArrayUtils.lsdRadixSort(test));
     }
 
+    @Test
+    public void testRadixSort() {
+        int n = 1000;
+        int[] control = new int[n];
+        Random random = new Random(42);
+        for (int i = 0; i < n; ++i) {
+            control[i] = random.nextInt();
+        }
+        control[0] = Integer.MIN_VALUE;
+        control[1] = Integer.MAX_VALUE;
+        control[2] = -1;
+        control[3] = 0;
+        int[] test = ArrayUtils.radixSort(control);
+        Arrays.sort(control);
+
+        assertArrayEquals(control, test);
+    }
+
+    @Test
+    public void testRadixSortWithValues() {
+        int n = 1000;
+        int[] keys = new int[n + 1];
+        int[] values = new int[n + 1];
+        long[] control = new long[n];
+        Random random = new Random(43);
+        for (int i = 0; i < n; ++i) {
+            // few distinct keys, so that the order of equal keys shows
+            keys[i] = random.nextInt(50) - 25 << 24 | random.nextInt(4);
+            values[i] = i;
+            control[i] = (long) keys[i] << 32 | i;
+        }
+        keys[n] = 7;
+        values[n] = -1;
+        ArrayUtils.radixSort(keys, values, n);
+        Arrays.sort(control);
+
+        for (int i = 0; i < n; ++i) {
+            assertEquals(control[i] >> 32, keys[i]);
+            assertEquals((int) control[i], values[i]);
+        }
+        // past n is left alone
+        assertEquals(7, keys[n]);
+        assertEquals(-1, values[n]);
+    }
+
     @Test
     public void testCountingSort() {
         int n = 100;
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class ConcurrentIntVanEmdeBoasTreeSetTest {
+    @Test
+    public void test() {
+        ConcurrentIntVanEmdeBoasTreeSet set = new ConcurrentIntVanEmdeBoasTreeSet();
+        TreeSet<Integer> control = new TreeSet<>();
+        assertTrue(set.isEmpty());
+        assertNull(set.pollFirst());
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; ++i) {
+            int integer = random.nextBoolean() ? random.nextInt() : random.nextInt(1 << 20) - (1 << 19);
+            if (random.nextInt(3) > 0) {
+                assertEquals(control.add(integer), set.addInt(integer));
+            } else {
+                assertEquals(control.remove(integer), set.removeInt(integer));
+            }
+            assertEquals(control.size(), set.size());
+        }
+        for (int i = 0; i < 10000; ++i) {
+            int integer = random.nextBoolean() ? random.nextInt() : random.nextInt(1 << 20) - (1 << 19);
+            assertEquals(control.contains(integer), set.containsInt(integer));
+            assertEquals(control.lower(integer), set.lower(integer));
+            assertEquals(control.floor(integer), set.floor(integer));
+            assertEquals(control.ceiling(integer), set.ceiling(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+        }
+        assertEquals(control.first(), set.first());
+        assertEquals(control.last(), set.last());
+        assertArrayEquals(control.toArray(), set.toArray());
+        assertArrayEquals(control.descendingSet().toArray(), set.descendingSet().toArray());
+        assertEquals(control.pollFirst(), set.pollFirst());
+        assertEquals(control.pollLast(), set.pollLast());
+        assertEquals(control, set);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertTrue(set.addInt(Integer.MIN_VALUE));
+        assertFalse(set.addInt(Integer.MIN_VALUE));
+        assertTrue(set.addInt(Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, set.successor(Integer.MIN_VALUE));
+        assertEquals(Integer.MIN_VALUE, set.predecessor(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        ConcurrentIntVanEmdeBoasTreeSet set = new ConcurrentIntVanEmdeBoasTreeSet(4);
+        int numThreads = 4;
+        int n = 1 << 18;
+        CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; ++t) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    // every thread adds all keys, but only removes its own share of the odd ones
+                    for (int k = 0; k < n; ++k) {
+                        set.addInt(k);
+                    }
+                    barrier.await();
+                    for (int k = 1 + 2 * thread; k < n; k += 2 * numThreads) {
+                        set.removeInt(k);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(n / 2, set.size());
+        int[] expected = new int[n / 2];
+        for (int k = 0; k < expected.length; ++k) {
+            expected[k] = 2 * k;
+        }
+        assertArrayEquals(expected, set.toIntArray());
+    }
+
+    @Test
+    public void testReadsDuringWrites() throws Exception {
+        ConcurrentIntVanEmdeBoasTreeSet set = new ConcurrentIntVanEmdeBoasTreeSet(4);
+        int n = 1 << 18;
+        // the multiples of 4 are always there, the other keys come and go
+        for (int k = 0; k < n; k += 4) {
+            set.addInt(k);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; ++t) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!done.get()) {
+                        int k = random.nextInt(n);
+                        if (k % 4 != 0) {
+                            if (random.nextBoolean()) {
+                                set.addInt(k);
+                            } else {
+                                set.removeInt(k);
+                            }
+                        }
+                    }
+                }));
+            }
+            for (int t = 0; t < 2; ++t) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 200000; ++i) {
+                        int k = random.nextInt(n - 4) & ~3;
+                        assertTrue(set.containsInt(k));
+                        int successor = set.successor(k);
+                        assertTrue(k < successor && successor <= k + 4);
+                        int predecessor = set.predecessor(k + 4);
+                        assertTrue(k <= predecessor && predecessor < k + 4);
+                    }
+                }));
+            }
+            for (Future<?> future : futures.subList(2, 4)) {
+                future.get();
+            }
+            done.set(true);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void testSparseClusters() {
+        // one key in each of a few summary words far apart, so queries cross many empty ones
+        ConcurrentIntVanEmdeBoasTreeSet set = new ConcurrentIntVanEmdeBoasTreeSet();
+        int[] keys = {Integer.MIN_VALUE, -(1 << 30), -1, 1 << 16, 1 << 28, Integer.MAX_VALUE};
+        for (int key : keys) {
+            set.addInt(key);
+        }
+        for (int k = 0; k + 1 < keys.length; ++k) {
+            assertEquals(keys[k + 1], set.successor(keys[k]));
+            assertEquals(keys[k], set.predecessor(keys[k + 1]));
+        }
+        assertArrayEquals(keys, set.toIntArray());
+        for (int key : keys) {
+            assertFalse(set.isEmpty());
+            set.removeInt(key);
+        }
+        assertTrue(set.isEmpty());
+        assertNull(set.higher(Integer.MIN_VALUE));
+        assertNull(set.lower(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmptyingSummaryWord() throws Exception {
+        // clusters 0x8000 and 0x8001 share a summary word, which one writer keeps emptying
+        ConcurrentIntVanEmdeBoasTreeSet set = new ConcurrentIntVanEmdeBoasTreeSet();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> toggler = executor.submit(() -> {
+                while (!done.get()) {
+                    set.addInt(0);
+                    set.removeInt(0);
+                }
+            });
+            Future<?> checker = executor.submit(() -> {
+                for (int i = 0; i < 100000; ++i) {
+                    set.addInt(1 << 16);
+                    // a completed add must be visible, however the word's flag is updated
+                    assertFalse(set.isEmpty());
+                    assertTrue(set.higher(Integer.MIN_VALUE) != null);
+                    assertTrue(set.lower(Integer.MAX_VALUE) != null);
+                    set.removeInt(1 << 16);
+                }
+            });
+            checker.get();
+            done.set(true);
+            toggler.get();
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNumStripesNotPowerOfTwo() {
+        new ConcurrentIntVanEmdeBoasTreeSet(3);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class FrozenIntVanEmdeBoasTreeSetTest {
+    @Test
+    public void test() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(Integer.MIN_VALUE);
+        set.addInt(-1);
+        set.addInt(0);
+        set.addInt(Integer.MAX_VALUE);
+        FrozenIntVanEmdeBoasTreeSet frozen = set.freeze();
+        // the snapshot does not follow the set
+        set.addInt(1);
+
+        assertEquals(4, frozen.size());
+        assertArrayEquals(new int[] {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE}, frozen.toIntArray());
+        assertTrue(frozen.containsInt(-1));
+        assertFalse(frozen.containsInt(1));
+        assertEquals(0, frozen.successor(-1));
+        assertEquals(Integer.MAX_VALUE, frozen.successor(0));
+        assertEquals(Integer.MIN_VALUE, frozen.predecessor(-1));
+        assertEquals(Integer.MIN_VALUE, frozen.firstInt());
+        assertEquals(Integer.MAX_VALUE, frozen.lastInt());
+        assertEquals(Integer.valueOf(0), frozen.higher(-1));
+        assertEquals(null, frozen.higher(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmpty() {
+        FrozenIntVanEmdeBoasTreeSet frozen = new IntVanEmdeBoasTreeSet().freeze();
+        assertTrue(frozen.isEmpty());
+        assertFalse(frozen.containsInt(0));
+        assertFalse(frozen.iterator().hasNext());
+        assertArrayEquals(new int[0], frozen.toIntArray());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorOfLast() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(1);
+        set.freeze().successor(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        new IntVanEmdeBoasTreeSet().freeze().addInt(1);
+    }
+
+    @Test
+    public void testRandom() {
+        // full range keys, dense keys, and universes small enough that the root is over leaves
+        assertRandom(32, 0, 20000, 42);
+        assertRandom(32, 1 << 14, 10000, 43);
+        assertRandom(16, 1 << 16, 30000, 44);
+        assertRandom(8, 1 << 8, 100, 45);
+        assertRandom(4, 1 << 4, 6, 46);
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [0, bound) shifted to the middle of the
+     * universe for 32 bits.
+     */
+    private void assertRandom(int numBits, int bound, int n, long seed) {
+        Random random = new Random(seed);
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(numBits);
+        TreeSet<Integer> control = new TreeSet<>();
+        int shift = numBits == 32 ? -bound / 2 : 0;
+        for (int i = 0; i < n; ++i) {
+            int integer = bound == 0 ? random.nextInt() : random.nextInt(bound) + shift;
+            set.addInt(integer);
+            control.add(integer);
+        }
+
+        FrozenIntVanEmdeBoasTreeSet frozen = set.freeze();
+        assertEquals(numBits, frozen.getNumBits());
+        assertEquals(control.size(), frozen.size());
+        assertArrayEquals(set.toIntArray(), frozen.toIntArray());
+        assertArrayEquals(control.toArray(), frozen.toArray());
+        assertArrayEquals(control.descendingSet().toArray(), frozen.descendingSet().toArray());
+        for (int i = 0; i < 20000; ++i) {
+            int integer = bound == 0 ? random.nextInt() : random.nextInt(bound + 2) - 1 + shift;
+            assertEquals(control.contains(integer), frozen.containsInt(integer));
+            assertEquals(control.higher(integer), frozen.higher(integer));
+            assertEquals(control.lower(integer), frozen.lower(integer));
+            assertEquals(control.ceiling(integer), frozen.ceiling(integer));
+            assertEquals(control.floor(integer), frozen.floor(integer));
+        }
+        for (int integer : control) {
+            assertTrue(frozen.containsInt(integer));
+        }
+    }
+
+    @Test
+    public void testSharedBetweenThreads() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        long sum = 0;
+        for (int i = 0; i < 100000; i += 3) {
+            set.addInt(i);
+            sum += i;
+        }
+        FrozenIntVanEmdeBoasTreeSet frozen = set.freeze();
+        assertEquals(sum, frozen.parallelIntStream().asLongStream().sum());
+        assertEquals(frozen.size(), frozen.parallelIntStream().filter(frozen::containsInt).count());
+    }
+}
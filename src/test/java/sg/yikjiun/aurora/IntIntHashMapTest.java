@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2015 Lee Yik Jiun
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntIntHashMapTest {
+    @Test
+    public void test() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> control = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; ++i) {
+            // a small key range forces long probe sequences and many deletions
+            int key = random.nextInt(256) * 65536 - 8388608;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                int value = random.nextInt(4) - 1;
+                Integer old = value == 0 ? control.remove(key) : control.put(key, value);
+                assertEquals(old == null ? 0 : old, map.put(key, value));
+            } else if (operation == 1) {
+                Integer old = control.remove(key);
+                assertEquals(old == null ? 0 : old, map.remove(key));
+            } else {
+                assertEquals(control.getOrDefault(key, 0).intValue(), map.get(key));
+            }
+            assertEquals(control.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> entry : control.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(-8388608));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2015 Lee Yik Jiun
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntObjectHashMapTest {
+    @Test
+    public void test() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        Map<Integer, Integer> control = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; ++i) {
+            // a small key range forces long probe sequences and many deletions
+            int key = random.nextInt(256) * 65536 - 8388608;
+            if (random.nextBoolean()) {
+                assertEquals(control.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(control.remove(key), map.remove(key));
+            }
+            assertEquals(control.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> entry : control.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        int size = 0;
+        for (int i = 0; i < map.capacity(); ++i) {
+            if (map.valueAt(i) != null) {
+                assertEquals(control.get(map.keyAt(i)), map.valueAt(i));
+                ++size;
+            }
+        }
+        assertEquals(control.size(), size);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasIngestorTest {
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    public void test() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(100);
+        try (IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(set, 16, 8, HOUR_NANOS)) {
+            assertArrayEquals(new int[] {100}, ingestor.snapshot().toIntArray());
+            // the last operation on a key wins, in a batch or across batches
+            ingestor.add(5);
+            ingestor.remove(5);
+            ingestor.add(-6);
+            ingestor.remove(-6);
+            ingestor.add(-6);
+            ingestor.remove(100);
+            for (int i = 0; i < 100; ++i) {
+                ingestor.add(i * 1000);
+            }
+            ingestor.flush();
+            FrozenIntVanEmdeBoasTreeSet snapshot = ingestor.snapshot();
+            assertEquals(101, snapshot.size());
+            assertTrue(snapshot.containsInt(-6));
+            assertFalse(snapshot.containsInt(5));
+            assertFalse(snapshot.containsInt(100));
+            assertTrue(snapshot.containsInt(99000));
+        }
+    }
+
+    @Test
+    public void testStaleness() throws InterruptedException {
+        try (IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 8,
+            HOUR_NANOS)) {
+            ingestor.add(1);
+            Thread.sleep(50);
+            // applied by now, but not due to be published for an hour
+            assertTrue(ingestor.snapshot().isEmpty());
+            ingestor.flush();
+            assertEquals(1, ingestor.snapshot().size());
+        }
+
+        try (IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 8,
+            TimeUnit.MILLISECONDS.toNanos(1))) {
+            ingestor.add(1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (ingestor.snapshot().isEmpty()) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void testClose() {
+        IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 8, HOUR_NANOS);
+        ingestor.add(1);
+        ingestor.add(2);
+        ingestor.close();
+        assertArrayEquals(new int[] {1, 2}, ingestor.snapshot().toIntArray());
+        ingestor.flush();
+        try {
+            ingestor.add(3);
+            throw new AssertionError();
+        } catch (IllegalStateException e) {
+            assertEquals(2, ingestor.snapshot().size());
+        }
+    }
+
+    @Test
+    public void testCloseInterrupted() {
+        IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 8, HOUR_NANOS);
+        ingestor.add(1);
+        Thread.currentThread().interrupt();
+        ingestor.close();
+        // cleared here, so that it does not leak into other tests
+        assertTrue(Thread.interrupted());
+        try {
+            ingestor.add(2);
+            throw new AssertionError();
+        } catch (IllegalStateException e) {
+            // the applier still publishes what was queued before close
+            ingestor.close();
+            assertArrayEquals(new int[] {1}, ingestor.snapshot().toIntArray());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testApplierDied() {
+        IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 8, HOUR_NANOS) {
+            @Override
+            void applyBatch(int n) {
+                // quietly, so that the test output has no stack trace
+                Thread.currentThread().setUncaughtExceptionHandler((thread, e) -> {
+                });
+                throw new IllegalStateException("failed to apply");
+            }
+        };
+        try {
+            // the first batch kills the applier, and the rest fill the buffer
+            for (int i = 0; i < 100; ++i) {
+                ingestor.add(i);
+            }
+            throw new AssertionError();
+        } catch (IllegalStateException e) {
+            assertEquals("applier died", e.getMessage());
+        }
+        try {
+            ingestor.flush();
+            throw new AssertionError();
+        } catch (IllegalStateException e) {
+            assertEquals("applier died", e.getMessage());
+            assertTrue(ingestor.snapshot().isEmpty());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchSizeGreaterThanCapacity() {
+        new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 32, HOUR_NANOS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutsideUniverse() {
+        try (IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(IntVanEmdeBoasTreeSet.forRange(0, 99), 16,
+            8, HOUR_NANOS)) {
+            ingestor.add(100);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchSizeNotPositive() {
+        new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 16, 0, HOUR_NANOS);
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        int numProducers = 4;
+        int perProducer = 50000;
+        // each producer works on keys of its own, so the result does not depend on interleaving
+        List<TreeSet<Integer>> controls = new ArrayList<>();
+        List<Thread> producers = new ArrayList<>();
+        try (IntVanEmdeBoasIngestor ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 256, 64,
+            TimeUnit.MILLISECONDS.toNanos(1))) {
+            for (int p = 0; p < numProducers; ++p) {
+                TreeSet<Integer> control = new TreeSet<>();
+                controls.add(control);
+                int id = p;
+                Thread producer = new Thread(() -> {
+                    Random random = new Random(id);
+                    for (int i = 0; i < perProducer; ++i) {
+                        int key = random.nextInt(10000) * numProducers + id;
+                        if (random.nextInt(3) > 0) {
+                            ingestor.add(key);
+                            control.add(key);
+                        } else {
+                            ingestor.remove(key);
+                            control.remove(key);
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            ingestor.flush();
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            controls.forEach(expected::addAll);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                ingestor.snapshot().toIntArray());
+        }
+    }
+}
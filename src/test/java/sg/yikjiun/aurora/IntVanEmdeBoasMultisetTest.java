@@ -0,0 +1,151 @@
+/*
+ *    Copyright 2015 Lee Yik Jiun
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasMultisetTest {
+    @Test
+    public void test() {
+        IntVanEmdeBoasMultiset multiset = new IntVanEmdeBoasMultiset();
+        assertTrue(multiset.isEmpty());
+        assertEquals(0, multiset.add(5));
+        assertEquals(1, multiset.add(5, 2));
+        assertEquals(0, multiset.add(-3));
+        assertEquals(0, multiset.add(Integer.MAX_VALUE, 4));
+        assertEquals(0, multiset.add(7, 0));
+        assertFalse(multiset.contains(7));
+        assertEquals(8, multiset.size());
+        assertEquals(3, multiset.distinctSize());
+        assertEquals(3, multiset.count(5));
+        assertArrayEquals(new int[] {-3, 5, 5, 5, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Integer.MAX_VALUE}, multiset.toIntArray());
+
+        // a key removed down to zero is skipped
+        assertTrue(multiset.removeOne(5));
+        assertEquals(2, multiset.remove(5, 10));
+        assertFalse(multiset.removeOne(5));
+        assertEquals(0, multiset.count(5));
+        assertEquals(Integer.MAX_VALUE, multiset.successor(-3));
+        assertEquals(-3, multiset.predecessor(Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, multiset.ceilingInt(5));
+        assertEquals(-3, multiset.floorInt(5));
+        assertEquals(4, multiset.removeAll(Integer.MAX_VALUE));
+        assertEquals(1, multiset.size());
+        assertEquals(-3, multiset.firstInt());
+        assertEquals(-3, multiset.lastInt());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorOfLast() {
+        IntVanEmdeBoasMultiset multiset = new IntVanEmdeBoasMultiset();
+        multiset.add(1, 3);
+        multiset.successor(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNegative() {
+        new IntVanEmdeBoasMultiset().add(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOverflow() {
+        IntVanEmdeBoasMultiset multiset = new IntVanEmdeBoasMultiset();
+        multiset.add(1, Integer.MAX_VALUE);
+        multiset.add(1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        assertRandomOperations(32, 1 << 10, 42);
+        assertRandomOperations(16, 1 << 16, 43);
+    }
+
+    private void assertRandomOperations(int numBits, int bound, long seed) {
+        IntVanEmdeBoasMultiset multiset = new IntVanEmdeBoasMultiset(numBits);
+        TreeMap<Integer, Integer> control = new TreeMap<>();
+        long size = 0;
+        Random random = new Random(seed);
+        for (int i = 0; i < 100000; ++i) {
+            int key = random.nextInt(bound);
+            int count = control.getOrDefault(key, 0);
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                int n = random.nextInt(4);
+                assertEquals(count, multiset.add(key, n));
+                if (count + n > 0) {
+                    control.put(key, count + n);
+                }
+                size += n;
+            } else if (operation == 1) {
+                assertEquals(count > 0, multiset.removeOne(key));
+                if (count > 1) {
+                    control.put(key, count - 1);
+                } else {
+                    control.remove(key);
+                }
+                size -= Math.min(count, 1);
+            } else if (operation == 2) {
+                int n = random.nextInt(3);
+                assertEquals(count, multiset.remove(key, n));
+                if (count > n) {
+                    control.put(key, count - n);
+                } else {
+                    control.remove(key);
+                }
+                size -= Math.min(count, n);
+            } else {
+                assertEquals(count, multiset.count(key));
+                Integer higher = control.higherKey(key);
+                if (higher != null) {
+                    assertEquals(higher.intValue(), multiset.successor(key));
+                }
+                Integer lower = control.lowerKey(key);
+                if (lower != null) {
+                    assertEquals(lower.intValue(), multiset.predecessor(key));
+                }
+            }
+            assertEquals(size, multiset.size());
+            assertEquals(control.size(), multiset.distinctSize());
+        }
+
+        PrimitiveIterator.OfInt iterator = multiset.iterator();
+        for (Map.Entry<Integer, Integer> entry : control.entrySet()) {
+            for (int n = 0; n < entry.getValue(); ++n) {
+                assertEquals(entry.getKey().intValue(), iterator.nextInt());
+            }
+        }
+        assertFalse(iterator.hasNext());
+        multiset.clear();
+        assertTrue(multiset.isEmpty());
+        assertEquals(0, multiset.distinctSize());
+        assertEquals(0, multiset.count(control.firstKey()));
+    }
+}
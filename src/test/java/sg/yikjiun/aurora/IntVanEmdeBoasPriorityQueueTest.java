@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasPriorityQueueTest {
+    @Test
+    public void test() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue();
+        assertTrue(queue.isEmpty());
+        queue.insert(3, 10);
+        queue.insert(1, -5);
+        queue.insert(2, 10);
+        queue.insert(100, 10);
+        assertEquals(4, queue.size());
+        assertEquals(-5, queue.peekMin());
+        assertEquals(1, queue.peekMinId());
+        assertEquals(1, queue.extractMin());
+
+        // ties come out first in, first out, and a decreased id goes last at its new priority
+        queue.insert(4, 7);
+        queue.decreaseKey(100, 7);
+        assertEquals(7, queue.getPriority(100));
+        assertEquals(4, queue.extractMin());
+        assertEquals(100, queue.extractMin());
+        assertTrue(queue.remove(3));
+        assertFalse(queue.remove(3));
+        assertEquals(10, queue.peekMin());
+        assertEquals(2, queue.extractMin());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testExtractMinEmpty() {
+        new IntVanEmdeBoasPriorityQueue().extractMin();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertTwice() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue();
+        queue.insert(1, 1);
+        queue.insert(1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncreaseKey() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue();
+        queue.insert(1, 1);
+        queue.decreaseKey(1, 2);
+    }
+
+    @Test
+    public void testInsertOutsideUniverse() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue(8, 4);
+        try {
+            queue.insert(1, 300);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertFalse(queue.contains(1));
+        assertEquals(0, queue.size());
+        assertTrue(queue.isEmpty());
+        queue.insert(1, 3);
+        assertEquals(1, queue.extractMin());
+    }
+
+    @Test
+    public void testDecreaseKeyOutsideUniverse() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue(8, 4);
+        queue.insert(2, 5);
+        try {
+            queue.decreaseKey(2, -1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTrue(queue.contains(2));
+        assertEquals(5, queue.getPriority(2));
+        assertEquals(1, queue.size());
+        assertEquals(5, queue.peekMin());
+        assertEquals(2, queue.extractMin());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue(32, 4);
+        // priority, then sequence number, then id
+        TreeSet<long[]> control = new TreeSet<>(
+            (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        long[][] entries = new long[1000][];
+        Random random = new Random(42);
+        long sequence = 0;
+        for (int i = 0; i < 100000; ++i) {
+            int id = random.nextInt(entries.length);
+            int operation = random.nextInt(4);
+            if (entries[id] == null && operation < 2) {
+                // few distinct priorities, so that many ids share one
+                int priority = random.nextInt(100) - 50;
+                queue.insert(id, priority);
+                entries[id] = new long[] {priority, sequence++, id};
+                control.add(entries[id]);
+            } else if (entries[id] != null && operation == 2) {
+                int priority = (int) entries[id][0] - random.nextInt(3);
+                queue.decreaseKey(id, priority);
+                if (priority < entries[id][0]) {
+                    control.remove(entries[id]);
+                    entries[id] = new long[] {priority, sequence++, id};
+                    control.add(entries[id]);
+                }
+            } else if (operation == 3) {
+                assertEquals(entries[id] != null, queue.remove(id));
+                if (entries[id] != null) {
+                    control.remove(entries[id]);
+                    entries[id] = null;
+                }
+            } else if (!control.isEmpty()) {
+                long[] first = control.pollFirst();
+                assertEquals(first[0], queue.peekMin());
+                assertEquals(first[2], queue.extractMin());
+                entries[(int) first[2]] = null;
+            }
+            assertEquals(control.size(), queue.size());
+        }
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.contains(0));
+    }
+
+    @Test
+    public void testDijkstra() {
+        Random random = new Random(43);
+        int n = 2000;
+        int[][] edges = new int[n][];
+        int[][] weights = new int[n][];
+        for (int u = 0; u < n; ++u) {
+            edges[u] = new int[1 + random.nextInt(8)];
+            weights[u] = new int[edges[u].length];
+            for (int e = 0; e < edges[u].length; ++e) {
+                edges[u][e] = random.nextInt(n);
+                weights[u][e] = random.nextInt(100);
+            }
+        }
+
+        int[] expected = new int[n];
+        Arrays.fill(expected, Integer.MAX_VALUE);
+        expected[0] = 0;
+        PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        heap.add(new long[] {0, 0});
+        while (!heap.isEmpty()) {
+            long[] entry = heap.poll();
+            int u = (int) entry[1];
+            if (entry[0] > expected[u]) {
+                continue;
+            }
+            for (int e = 0; e < edges[u].length; ++e) {
+                int v = edges[u][e];
+                int distance = expected[u] + weights[u][e];
+                if (distance < expected[v]) {
+                    expected[v] = distance;
+                    heap.add(new long[] {distance, v});
+                }
+            }
+        }
+
+        int[] actual = new int[n];
+        Arrays.fill(actual, Integer.MAX_VALUE);
+        actual[0] = 0;
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue(32, n);
+        queue.insert(0, 0);
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            for (int e = 0; e < edges[u].length; ++e) {
+                int v = edges[u][e];
+                int distance = actual[u] + weights[u][e];
+                if (distance < actual[v]) {
+                    if (queue.contains(v)) {
+                        queue.decreaseKey(v, distance);
+                    } else {
+                        queue.insert(v, distance);
+                    }
+                    actual[v] = distance;
+                }
+            }
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
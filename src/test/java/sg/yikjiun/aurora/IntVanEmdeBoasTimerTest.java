@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasTimerTest {
+    @Test
+    public void test() {
+        IntVanEmdeBoasTimer<String> timer = new IntVanEmdeBoasTimer<>();
+        assertTrue(timer.isEmpty());
+        IntVanEmdeBoasTimer.Timeout<String> a = timer.schedule(10, "a");
+        timer.schedule(5, "b");
+        IntVanEmdeBoasTimer.Timeout<String> c = timer.schedule(10, "c");
+        timer.schedule(10, "d");
+        timer.schedule(-3, "e");
+        assertEquals(5, timer.size());
+        assertEquals(-3, timer.nextDeadline());
+
+        // deadline order, and first scheduled first within a deadline
+        List<String> expired = new ArrayList<>();
+        assertEquals(1, timer.expire(4, expired::add));
+        assertEquals(0, timer.expire(4, expired::add));
+        assertTrue(c.cancel());
+        assertFalse(c.cancel());
+        assertEquals(3, timer.expire(10, expired::add));
+        assertEquals(Arrays.asList("e", "b", "a", "d"), expired);
+        assertTrue(a.isExpired());
+        assertFalse(a.cancel());
+        assertTrue(c.isCancelled());
+        assertTrue(timer.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextDeadlineEmpty() {
+        new IntVanEmdeBoasTimer<String>().nextDeadline();
+    }
+
+    @Test
+    public void testCancel() {
+        // the only, first, middle and last timeout of a deadline
+        IntVanEmdeBoasTimer<Integer> timer = new IntVanEmdeBoasTimer<>();
+        assertTrue(timer.schedule(1, 0).cancel());
+        List<IntVanEmdeBoasTimer.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            timeouts.add(timer.schedule(2, i));
+        }
+        assertEquals(2, timer.nextDeadline());
+        assertTrue(timeouts.get(0).cancel());
+        assertTrue(timeouts.get(2).cancel());
+        assertTrue(timeouts.get(4).cancel());
+        timer.schedule(2, 5);
+        List<Integer> expired = new ArrayList<>();
+        timer.expire(2, expired::add);
+        assertEquals(Arrays.asList(1, 3, 5), expired);
+    }
+
+    @Test
+    public void testTasksScheduleAndCancel() {
+        IntVanEmdeBoasTimer<Runnable> timer = new IntVanEmdeBoasTimer<>();
+        List<String> log = new ArrayList<>();
+        IntVanEmdeBoasTimer.Timeout<Runnable> later = timer.schedule(20, () -> log.add("later"));
+        timer.schedule(1, () -> {
+            log.add("first");
+            // due already, but waits for the next call
+            timer.schedule(1, () -> log.add("again"));
+            later.cancel();
+        });
+        assertEquals(1, timer.expire(10, Runnable::run));
+        assertEquals(Arrays.asList("first"), log);
+        assertEquals(1, timer.expire(10, Runnable::run));
+        assertEquals(Arrays.asList("first", "again"), log);
+        assertTrue(timer.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutsideUniverse() {
+        IntVanEmdeBoasTimer<String> timer = new IntVanEmdeBoasTimer<>(16);
+        try {
+            timer.schedule(1 << 16, "a");
+        } finally {
+            assertTrue(timer.isEmpty());
+        }
+    }
+
+    @Test
+    public void testClear() {
+        IntVanEmdeBoasTimer<Integer> timer = new IntVanEmdeBoasTimer<>();
+        IntVanEmdeBoasTimer.Timeout<Integer> timeout = timer.schedule(5, 1);
+        timer.schedule(Integer.MAX_VALUE, 2);
+        timer.clear();
+        assertTrue(timer.isEmpty());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        timer.schedule(5, 3);
+        assertEquals(5, timer.nextDeadline());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IntVanEmdeBoasTimer<Integer> timer = new IntVanEmdeBoasTimer<>();
+        // deadline to the pending tasks in order
+        TreeMap<Integer, List<Integer>> control = new TreeMap<>();
+        List<IntVanEmdeBoasTimer.Timeout<Integer>> timeouts = new ArrayList<>();
+        Random random = new Random(42);
+        int now = 0;
+        for (int i = 0; i < 100000; ++i) {
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                // few distinct deadlines, so that many tasks share one
+                int deadline = now + random.nextInt(1000);
+                timeouts.add(timer.schedule(deadline, i));
+                control.computeIfAbsent(deadline, k -> new ArrayList<>()).add(i);
+            } else if (operation < 9 && !timeouts.isEmpty()) {
+                IntVanEmdeBoasTimer.Timeout<Integer> timeout = timeouts.get(random.nextInt(timeouts.size()));
+                List<Integer> tasks = control.get(timeout.getDeadline());
+                boolean pending = tasks != null && tasks.contains(timeout.getTask());
+                assertEquals(pending, timeout.isPending());
+                assertEquals(pending, timeout.cancel());
+                if (pending) {
+                    tasks.remove(timeout.getTask());
+                    if (tasks.isEmpty()) {
+                        control.remove(timeout.getDeadline());
+                    }
+                }
+            } else {
+                now += random.nextInt(100);
+                List<Integer> expected = new ArrayList<>();
+                while (!control.isEmpty() && control.firstKey() <= now) {
+                    expected.addAll(control.pollFirstEntry().getValue());
+                }
+                List<Integer> expired = new ArrayList<>();
+                assertEquals(expected.size(), timer.expire(now, expired::add));
+                assertEquals(expected, expired);
+                timeouts.removeIf(timeout -> !timeout.isPending());
+            }
+            assertEquals(control.values().stream().mapToInt(List::size).sum(), timer.size());
+            if (!control.isEmpty()) {
+                assertEquals(control.firstKey().intValue(), timer.nextDeadline());
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntVanEmdeBoasTreeMapTest {
+    @Test
+    public void test() {
+        IntVanEmdeBoasTreeMap<String> map = new IntVanEmdeBoasTreeMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.floorEntry(0));
+        assertNull(map.put(10, "a"));
+        assertNull(map.put(Integer.MIN_VALUE, "b"));
+        assertNull(map.put(Integer.MAX_VALUE, "c"));
+        assertEquals("a", map.put(10, "d"));
+        assertEquals(3, map.size());
+        assertEquals("d", map.get(10));
+        assertNull(map.get(11));
+        assertTrue(map.containsKey(Integer.MIN_VALUE));
+
+        assertEquals(new IntVanEmdeBoasTreeMap.Entry<>(10, "d"), map.floorEntry(11));
+        assertEquals(new IntVanEmdeBoasTreeMap.Entry<>(10, "d"), map.floorEntry(10));
+        assertEquals(new IntVanEmdeBoasTreeMap.Entry<>(Integer.MIN_VALUE, "b"), map.floorEntry(9));
+        assertEquals(new IntVanEmdeBoasTreeMap.Entry<>(Integer.MAX_VALUE, "c"), map.ceilingEntry(11));
+        assertEquals(new IntVanEmdeBoasTreeMap.Entry<>(Integer.MIN_VALUE, "b"), map.lowerEntry(10));
+        assertNull(map.lowerEntry(Integer.MIN_VALUE));
+        assertNull(map.higherEntry(Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE, map.firstEntry().getKey());
+        assertEquals("c", map.lastEntry().getValue());
+        assertArrayEquals(new int[] {Integer.MIN_VALUE, 10, Integer.MAX_VALUE}, map.keysToIntArray());
+
+        assertEquals("d", map.remove(10));
+        assertNull(map.remove(10));
+        assertFalse(map.containsKey(10));
+        assertEquals(Integer.MAX_VALUE, map.ceilingEntry(0).getKey());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(Integer.MIN_VALUE));
+        assertNull(map.ceilingEntry(Integer.MIN_VALUE));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNull() {
+        new IntVanEmdeBoasTreeMap<String>().put(1, null);
+    }
+
+    @Test
+    public void testPutOutsideUniverse() {
+        IntVanEmdeBoasTreeMap<String> map = new IntVanEmdeBoasTreeMap<>(8);
+        map.put(1, "a");
+        try {
+            map.put(300, "x");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, map.size());
+            assertFalse(map.containsKey(300));
+            assertNull(map.get(300));
+            assertArrayEquals(new int[] {1}, map.keysToIntArray());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstKeyEmpty() {
+        new IntVanEmdeBoasTreeMap<String>().firstKey();
+    }
+
+    @Test
+    public void testRandomOperations() {
+        assertRandomOperations(32, 0, 42);
+        assertRandomOperations(32, 1 << 12, 43);
+        assertRandomOperations(16, 1 << 16, 44);
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [0, bound).
+     */
+    private void assertRandomOperations(int numBits, int bound, long seed) {
+        IntVanEmdeBoasTreeMap<Integer> map = new IntVanEmdeBoasTreeMap<>(numBits);
+        TreeMap<Integer, Integer> control = new TreeMap<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 100000; ++i) {
+            int key = bound == 0 ? random.nextInt() : random.nextInt(bound);
+            switch (random.nextInt(3)) {
+            case 0:
+                assertEquals(control.put(key, i), map.put(key, i));
+                break;
+            case 1:
+                assertEquals(control.remove(key), map.remove(key));
+                break;
+            default:
+                assertEquals(control.get(key), map.get(key));
+                assertEntry(control.floorEntry(key), map.floorEntry(key));
+                assertEntry(control.ceilingEntry(key), map.ceilingEntry(key));
+                assertEntry(control.lowerEntry(key), map.lowerEntry(key));
+                assertEntry(control.higherEntry(key), map.higherEntry(key));
+            }
+            assertEquals(control.size(), map.size());
+        }
+
+        Iterator<IntVanEmdeBoasTreeMap.Entry<Integer>> iterator = map.entryIterator();
+        for (Map.Entry<Integer, Integer> expected : control.entrySet()) {
+            assertEntry(expected, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        Iterator<Map.Entry<Integer, Integer>> expected = control.entrySet().iterator();
+        map.forEach((value, key) -> assertEntry(expected.next(), new IntVanEmdeBoasTreeMap.Entry<>(key, value)));
+        assertFalse(expected.hasNext());
+    }
+
+    private static void assertEntry(Map.Entry<Integer, Integer> expected, IntVanEmdeBoasTreeMap.Entry<Integer> actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected.getKey().intValue(), actual.getKey());
+            assertEquals(expected.getValue(), actual.getValue());
+        }
+    }
+}
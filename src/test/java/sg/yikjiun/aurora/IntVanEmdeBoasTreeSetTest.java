@@ -2,11 +2,27 @@ package sg.yikjiun.aurora;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static org.junit.Assert.*;
 
@@ -19,7 +35,7 @@ public class IntVanEmdeBoasTreeSetTest {
 
     @Before
     public void setUp() throws Exception {
-        set = new IntVanEmdeBoasTreeSetV3();
+        set = new IntVanEmdeBoasTreeSet();
 
         integers = new ArrayList<>();
         for (int i = 0; i <= 100; ++i) {
@@ -53,4 +69,943 @@ public class IntVanEmdeBoasTreeSetTest {
         assertTrue(set.isEmpty());
         assertEquals(0, set.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrimitive() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        int size = 0;
+        for (Integer integer : integers) {
+            int i = integer;
+            assertFalse(set.containsInt(i));
+            assertTrue(set.addInt(i));
+            assertFalse(set.addInt(i));
+            assertTrue(set.containsInt(i));
+            assertEquals(++size, set.size());
+        }
+        for (Integer integer : integers) {
+            int i = integer;
+            assertTrue(set.removeInt(i));
+            assertFalse(set.removeInt(i));
+            assertFalse(set.containsInt(i));
+            assertEquals(--size, set.size());
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testNavigation() {
+        assertNavigation(new IntVanEmdeBoasTreeSet(), new TreeSet<Integer>());
+        assertNavigation(IntVanEmdeBoasTreeSet.withUniverseSize(1 << 20), new TreeSet<Integer>());
+    }
+
+    private void assertNavigation(IntNavigableSet set, NavigableSet<Integer> control) {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; ++i) {
+            int integer = random.nextInt(1 << 20);
+            assertEquals(control.add(integer), set.add(integer));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            int integer = random.nextInt(1 << 20);
+            assertEquals(control.remove(integer), set.remove(integer));
+        }
+        assertEquals(control.first(), set.first());
+        assertEquals(control.last(), set.last());
+        for (int i = 0; i < 1000; ++i) {
+            int integer = random.nextInt(1 << 20);
+            assertEquals(control.lower(integer), set.lower(integer));
+            assertEquals(control.floor(integer), set.floor(integer));
+            assertEquals(control.ceiling(integer), set.ceiling(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+        }
+        for (Integer integer : control) {
+            assertEquals(control.lower(integer), set.lower(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+        }
+        Iterator<Integer> iterator = set.iterator();
+        for (Integer integer : control) {
+            assertEquals(integer, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        iterator = set.descendingIterator();
+        for (Integer integer : control.descendingSet()) {
+            assertEquals(integer, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testSignedDomain() {
+        for (IntNavigableSet set : new IntNavigableSet[] {
+            new IntVanEmdeBoasTreeSet(), new IntVanEmdeBoasTreeSet(32, 0.25f),
+            IntVanEmdeBoasTreeSet.withUniverseSize(1L << 32)
+        }) {
+            assertTrue(set.addInt(Integer.MAX_VALUE));
+            assertTrue(set.addInt(Integer.MIN_VALUE));
+            assertTrue(set.addInt(-1));
+            assertTrue(set.addInt(0));
+            assertFalse(set.addInt(Integer.MAX_VALUE));
+            assertEquals(4, set.size());
+            assertEquals(Integer.MIN_VALUE, set.firstInt());
+            assertEquals(Integer.MAX_VALUE, set.lastInt());
+            assertEquals(-1, set.successor(Integer.MIN_VALUE));
+            assertEquals(0, set.successor(-1));
+            assertEquals(-1, set.predecessor(0));
+            assertEquals(Integer.MAX_VALUE, set.successor(0));
+            assertArrayEquals(new int[] {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE}, set.toIntArray());
+
+            TreeSet<Integer> control = new TreeSet<>(set);
+            Random random = new Random(42);
+            for (int i = 0; i < 10000; ++i) {
+                int integer = random.nextInt();
+                if (random.nextBoolean()) {
+                    assertEquals(control.add(integer), set.addInt(integer));
+                } else {
+                    assertEquals(control.remove(integer), set.removeInt(integer));
+                }
+            }
+            for (int i = 0; i < 1000; ++i) {
+                int integer = random.nextInt();
+                assertEquals(control.lower(integer), set.lower(integer));
+                assertEquals(control.ceiling(integer), set.ceiling(integer));
+            }
+            assertEquals(control, set);
+            assertArrayEquals(control.toArray(), set.toArray());
+        }
+
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        assertTrue(set.addInt(Integer.MAX_VALUE));
+        assertEquals(1, set.size());
+        assertTrue(set.containsInt(Integer.MAX_VALUE));
+        assertTrue(set.removeInt(Integer.MAX_VALUE));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testAddAllSortedSigned() {
+        Random random = new Random(42);
+        int[] keys = new int[10000];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = random.nextInt();
+        }
+        keys[0] = Integer.MIN_VALUE;
+        keys[1] = Integer.MAX_VALUE;
+        TreeSet<Integer> control = new TreeSet<>();
+        for (int key : keys) {
+            control.add(key);
+        }
+
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        assertTrue(set.addAll(keys));
+        assertEquals(control, set);
+        assertArrayEquals(control.toArray(), set.intStream().boxed().toArray());
+        assertArrayEquals(control.toArray(), set.parallelIntStream().boxed().toArray());
+        for (int i = 0; i < 1000; ++i) {
+            int integer = random.nextInt();
+            assertEquals(control.higher(integer), set.higher(integer));
+            assertEquals(control.floor(integer), set.floor(integer));
+        }
+    }
+
+    @Test
+    public void testStats() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        IntVanEmdeBoasTreeSet.Stats stats = set.getStats();
+        assertArrayEquals(new long[] {1}, stats.getClustersPerLevel());
+        assertEquals(0, stats.getAverageDepth(), 0);
+
+        set.addInt(1);
+        set.addInt(2);
+        assertEquals(0, set.getStats().getAverageDepth(), 0);
+        // 3 lands in a 16-bit cluster of the root, which keeps it as its min
+        set.addInt(3);
+        stats = set.getStats();
+        assertArrayEquals(new long[] {1, 2}, stats.getClustersPerLevel());
+        assertEquals(1 / 3.0, stats.getAverageDepth(), 1e-9);
+        assertEquals(65535, stats.getEmptyChildSlots());
+
+        Random random = new Random(42);
+        for (float denseFillRatio : new float[] {0, 0.25f}) {
+            set = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+            for (int i = 0; i < 10000; ++i) {
+                set.addInt(random.nextInt());
+            }
+            stats = set.getStats();
+            long bytes = GraphLayout.parseInstance(set).totalSize();
+            assertEquals(bytes, stats.getRetainedBytes(), bytes * 0.01);
+            assertEquals(3, stats.getClustersPerLevel().length);
+            assertTrue(stats.getAverageDepth() > 1 && stats.getAverageDepth() <= 2);
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorOfLast() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(1);
+        set.addInt(5);
+        assertEquals(5, set.successor(1));
+        set.successor(5);
+    }
+
+    @Test
+    public void testViews() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        TreeSet<Integer> control = new TreeSet<>();
+        for (int i = 0; i < 100; i += 3) {
+            set.addInt(i);
+            control.add(i);
+        }
+        assertEquals(control.subSet(10, true, 50, false), set.subSet(10, true, 50, false));
+        assertEquals(control.headSet(30, true).size(), set.headSet(30, true).size());
+        assertEquals(control.tailSet(31, false).first(), set.tailSet(31, false).first());
+        assertEquals(control.subSet(10, true, 50, false).descendingSet().first(), set.subSet(10, 50).descendingSet().first());
+        assertEquals(control.descendingSet().headSet(50).last(), set.descendingSet().headSet(50).last());
+        assertEquals(control.pollFirst(), set.pollFirst());
+        assertEquals(control.pollLast(), set.pollLast());
+
+        Iterator<Integer> iterator = set.subSet(20, 40).iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        control.subSet(20, 40).clear();
+        assertEquals(control, set);
+    }
+
+    @Test
+    public void testDense() {
+        for (int numBits : new int[] {4, 8, 12, 16, 32}) {
+            int bound = numBits < 16 ? 1 << numBits : 1 << 12;
+            assertRandomOperations(new IntVanEmdeBoasTreeSet(numBits), bound, numBits);
+        }
+    }
+
+    @Test
+    public void testSparse() {
+        for (float denseFillRatio : new float[] {0.01f, 0.25f, 1}) {
+            assertRandomOperations(new IntVanEmdeBoasTreeSet(32, denseFillRatio), 1 << 12, 1);
+            assertRandomOperations(new IntVanEmdeBoasTreeSet(32, denseFillRatio), Integer.MAX_VALUE, 2);
+        }
+    }
+
+    @Test
+    public void testClear() {
+        for (IntVanEmdeBoasTreeSet set : new IntVanEmdeBoasTreeSet[] {
+            new IntVanEmdeBoasTreeSet(), new IntVanEmdeBoasTreeSet(32, 0.25f, 16), new IntVanEmdeBoasTreeSet(8)
+        }) {
+            for (int i = 0; i < 200; i += 3) {
+                set.addInt(i);
+            }
+            set.clear();
+            assertTrue(set.isEmpty());
+            assertFalse(set.containsInt(3));
+            assertFalse(set.iterator().hasNext());
+            assertArrayEquals(new long[] {1}, set.getStats().getClustersPerLevel());
+            // the set is as good as new afterwards
+            assertRandomOperations(set, 1 << 8, 3);
+        }
+    }
+
+    @Test
+    public void testPool() {
+        for (float denseFillRatio : new float[] {0, 0.25f}) {
+            for (int poolCapacity : new int[] {1, 64}) {
+                assertRandomOperations(new IntVanEmdeBoasTreeSet(32, denseFillRatio, poolCapacity), 1 << 12, 4);
+                assertSlidingWindow(new IntVanEmdeBoasTreeSet(32, denseFillRatio, poolCapacity));
+            }
+        }
+    }
+
+    /**
+     * Keys arrive roughly in order and expire a window later, one at a time or by the range, so
+     * that clusters keep filling up and emptying.
+     */
+    private void assertSlidingWindow(IntVanEmdeBoasTreeSet set) {
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(5);
+        int window = 1 << 12;
+        for (int now = 0; now < 1 << 18; now += 1 + random.nextInt(4)) {
+            int integer = now + random.nextInt(64);
+            assertEquals(control.add(integer), set.addInt(integer));
+            int expired = now - window;
+            if (random.nextInt(64) == 0) {
+                int lo = expired - random.nextInt(window);
+                control.subSet(lo, true, expired, true).clear();
+                set.removeRange(lo, expired);
+            } else if (!control.isEmpty() && control.first() <= expired) {
+                assertTrue(set.removeInt(control.pollFirst()));
+            }
+            assertEquals(control.size(), set.size());
+        }
+        assertArrayEquals(control.toArray(), set.toArray());
+        for (int i = 0; i < 10000; ++i) {
+            int integer = random.nextInt(1 << 18);
+            assertEquals(control.contains(integer), set.containsInt(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+        }
+    }
+
+    @Test
+    public void testBatchQueries() {
+        for (float denseFillRatio : new float[] {0, 0.25f}) {
+            assertBatchQueries(new IntVanEmdeBoasTreeSet(32, denseFillRatio), 0, 42);
+            assertBatchQueries(new IntVanEmdeBoasTreeSet(32, denseFillRatio), 1 << 16, 43);
+        }
+        assertBatchQueries(new IntVanEmdeBoasTreeSet(16), 1 << 16, 44);
+        assertBatchQueries(new IntVanEmdeBoasTreeSet(8), 1 << 8, 45);
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [0, bound), and queries them in random,
+     * sorted and clustered order. The queries stray outside [0, bound) as well.
+     */
+    private void assertBatchQueries(IntVanEmdeBoasTreeSet set, int bound, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> control = new TreeSet<>();
+        for (int i = 0; i < 5000; ++i) {
+            int integer = bound == 0 ? random.nextInt() : random.nextInt(bound);
+            set.addInt(integer);
+            control.add(integer);
+        }
+        int[] keys = new int[20000];
+        for (int k = 0; k < keys.length; ++k) {
+            if (k % 4 == 0) {
+                keys[k] = bound == 0 ? random.nextInt() : random.nextInt(bound + 2) - 1;
+            } else {
+                // near an element, so that some keys are in the set and neighbours share clusters
+                keys[k] = keys[k - 1] + random.nextInt(5) - 2;
+            }
+        }
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        for (int[] queries : new int[][] {keys, sorted}) {
+            boolean[] contains = new boolean[queries.length];
+            boolean containsAll = set.containsAll(queries, contains);
+            boolean expectedContainsAll = true;
+            for (int k = 0; k < queries.length; ++k) {
+                assertEquals(control.contains(queries[k]), contains[k]);
+                expectedContainsAll &= contains[k];
+            }
+            assertEquals(expectedContainsAll, containsAll);
+
+            int[] present = control.stream().mapToInt(Integer::intValue).filter(key -> key % 3 == 0).toArray();
+            assertTrue(set.containsAll(present, new boolean[present.length]));
+
+            int[] below = Arrays.stream(queries).filter(key -> key < control.last()).toArray();
+            int[] successors = new int[below.length];
+            set.successors(below, successors);
+            for (int k = 0; k < below.length; ++k) {
+                assertEquals(control.higher(below[k]).intValue(), successors[k]);
+            }
+        }
+    }
+
+    @Test
+    public void testContainsAll() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addAll(Arrays.asList(-5, 3, 1 << 20, Integer.MAX_VALUE));
+        assertTrue(set.containsAll(Arrays.asList(Integer.MAX_VALUE, 3, -5)));
+        assertTrue(set.containsAll(Collections.emptyList()));
+        assertFalse(set.containsAll(Arrays.asList(3, 4)));
+        assertFalse(set.containsAll(Arrays.asList(3, "3")));
+        assertTrue(set.containsAll(set.headSet(10)));
+        assertEquals(new TreeSet<>(Arrays.asList(-5, 3, 1 << 20, Integer.MAX_VALUE)), set);
+        assertTrue(new IntVanEmdeBoasTreeSet().containsAll(new int[0], new boolean[0]));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorsOfLast() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(1);
+        set.addInt(5);
+        set.successors(new int[] {0, 5}, new int[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchOutTooShort() {
+        new IntVanEmdeBoasTreeSet().containsAll(new int[2], new boolean[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePoolCapacity() {
+        new IntVanEmdeBoasTreeSet(32, 0, -1);
+    }
+
+    private void assertRandomOperations(IntVanEmdeBoasTreeSet set, int bound, long seed) {
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 10000; ++i) {
+            int integer = random.nextInt(bound);
+            if (random.nextBoolean()) {
+                assertEquals(control.add(integer), set.addInt(integer));
+            } else {
+                assertEquals(control.remove(integer), set.removeInt(integer));
+            }
+            assertEquals(control.size(), set.size());
+        }
+        for (int i = 0; i < 10000; ++i) {
+            int integer = bound <= 10000 ? i % bound : random.nextInt(bound);
+            assertEquals(control.contains(integer), set.containsInt(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+            assertEquals(control.lower(integer), set.lower(integer));
+        }
+        for (Integer integer : control) {
+            assertTrue(set.containsInt(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; ++i) {
+            int integer = random.nextInt(Integer.MAX_VALUE);
+            set.addInt(integer);
+            control.add(integer);
+        }
+
+        int[] expected = new int[control.size()];
+        int k = 0;
+        for (Integer integer : control) {
+            expected[k++] = integer;
+        }
+        assertArrayEquals(expected, set.toIntArray());
+        assertArrayEquals(control.toArray(), set.toArray());
+
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        for (int integer : expected) {
+            assertEquals(integer, iterator.nextInt());
+        }
+        assertFalse(iterator.hasNext());
+
+        assertArrayEquals(expected, set.intStream().toArray());
+        assertArrayEquals(expected, set.parallelIntStream().toArray());
+        long sum = 0;
+        for (int integer : expected) {
+            sum += integer;
+        }
+        assertEquals(sum, set.parallelIntStream().asLongStream().sum());
+        assertEquals(expected.length, set.parallelIntStream().filter(integer -> integer % 2 == 0).count()
+            + set.parallelIntStream().filter(integer -> integer % 2 != 0).count());
+    }
+
+    @Test
+    public void testAddAllSorted() {
+        Random random = new Random(42);
+        for (int bound : new int[] {1 << 8, 1 << 16, Integer.MAX_VALUE}) {
+            int[] keys = new int[10000];
+            for (int i = 0; i < keys.length; ++i) {
+                keys[i] = random.nextInt(bound);
+            }
+            TreeSet<Integer> control = new TreeSet<>();
+            for (int key : keys) {
+                control.add(key);
+            }
+
+            for (float denseFillRatio : new float[] {0, 0.25f}) {
+                IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+                assertTrue(set.addAll(keys));
+                assertEquals(control.size(), set.size());
+                assertEquals(control, set);
+                for (int i = 0; i < 1000; ++i) {
+                    int integer = random.nextInt(bound);
+                    assertEquals(control.higher(integer), set.higher(integer));
+                    assertEquals(control.lower(integer), set.lower(integer));
+                }
+                // the bulk loaded structure must support the incremental operations too
+                for (int key : keys) {
+                    set.removeInt(key);
+                }
+                assertTrue(set.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testAddAllSortedIntoNonEmptySet() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addInt(5);
+        assertTrue(set.addAllSorted(new int[] {1, 5, 5, 9}, 0, 4));
+        assertFalse(set.addAllSorted(new int[] {1, 5, 9}, 0, 3));
+        assertArrayEquals(new int[] {1, 5, 9}, set.toIntArray());
+        assertTrue(set.addAll(Arrays.asList(3, 2, 7)));
+        assertArrayEquals(new int[] {1, 2, 3, 5, 7, 9}, set.toIntArray());
+    }
+
+    @Test
+    public void testAddAllOutsideUniverse() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(8);
+        try {
+            set.addAll(new int[] {1000, 2, 1});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(set.isEmpty());
+        }
+        try {
+            set.addAll(Arrays.asList(3, -1, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(set.isEmpty());
+        }
+        assertTrue(set.addAll(new int[] {255, 0}));
+        assertArrayEquals(new int[] {0, 255}, set.toIntArray());
+    }
+
+    @Test
+    public void testUniverseSize() {
+        assertEquals(2, IntVanEmdeBoasTreeSet.withUniverseSize(1).getNumBits());
+        assertEquals(16, IntVanEmdeBoasTreeSet.withUniverseSize(1 << 16).getNumBits());
+        assertEquals(17, IntVanEmdeBoasTreeSet.withUniverseSize((1 << 16) + 1).getNumBits());
+        assertEquals(24, IntVanEmdeBoasTreeSet.withUniverseSize(10000000).getNumBits());
+        assertEquals(31, IntVanEmdeBoasTreeSet.withUniverseSize(1L << 31).getNumBits());
+        assertEquals(32, IntVanEmdeBoasTreeSet.withUniverseSize(1L << 32).getNumBits());
+
+        IntVanEmdeBoasTreeSet set = IntVanEmdeBoasTreeSet.withUniverseSize(10000000);
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; ++i) {
+            int integer = random.nextInt(10000000);
+            assertEquals(control.add(integer), set.addInt(integer));
+        }
+        assertArrayEquals(control.toArray(), set.toArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUniverseSizeTooLarge() {
+        IntVanEmdeBoasTreeSet.withUniverseSize((1L << 31) + 1);
+    }
+
+    @Test
+    public void testOddNumBits() {
+        assertRandomOperations(new IntVanEmdeBoasTreeSet(5), 1 << 5, 47);
+        assertRandomOperations(new IntVanEmdeBoasTreeSet(13), 1 << 13, 48);
+        assertRandomOperations(new IntVanEmdeBoasTreeSet(31, 0.25f), Integer.MAX_VALUE, 49);
+
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(13);
+        int[] keys = new Random(50).ints(3000, 0, 1 << 13).sorted().toArray();
+        set.addAllSorted(keys, 0, keys.length);
+        assertArrayEquals(Arrays.stream(keys).distinct().toArray(), set.toIntArray());
+    }
+
+    @Test
+    public void testForRange() {
+        // ranges of odd and even bits, off powers of two, and at both ends of int
+        assertForRange(0, 9999999, 42);
+        assertForRange(-1000, 1000, 43);
+        assertForRange((1 << 20) + 7, (1 << 20) + 12345, 44);
+        assertForRange(Integer.MAX_VALUE - 5000, Integer.MAX_VALUE, 45);
+        assertForRange(Integer.MIN_VALUE, Integer.MIN_VALUE + 100, 46);
+        assertForRange(-1 << 30, 1 << 30, 47);
+        assertForRange(Integer.MIN_VALUE, Integer.MAX_VALUE, 48);
+        assertForRange(-3, -3, 49);
+    }
+
+    private void assertForRange(int lo, int hi, long seed) {
+        IntVanEmdeBoasTreeSet set = IntVanEmdeBoasTreeSet.forRange(lo, hi);
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(seed);
+        long span = (long) hi - lo + 1;
+        for (int i = 0; i < 20000; ++i) {
+            int integer = (int) (lo + (long) (random.nextDouble() * span));
+            if (random.nextInt(3) > 0) {
+                assertEquals(control.add(integer), set.addInt(integer));
+            } else {
+                assertEquals(control.remove(integer), set.removeInt(integer));
+            }
+        }
+        set.addInt(lo);
+        set.addInt(hi);
+        control.add(lo);
+        control.add(hi);
+        assertArrayEquals(control.toArray(), set.toArray());
+        assertArrayEquals(control.descendingSet().toArray(), set.descendingSet().toArray());
+
+        int[] queries = new int[20000];
+        for (int k = 0; k < queries.length; ++k) {
+            // a little outside the range too, which wraps around at the ends of int
+            queries[k] = (int) (lo - 2 + (long) (random.nextDouble() * (span + 4)));
+            int integer = queries[k];
+            assertEquals(control.contains(integer), set.containsInt(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+            assertEquals(control.lower(integer), set.lower(integer));
+            assertEquals(control.ceiling(integer), set.ceiling(integer));
+            assertEquals(control.floor(integer), set.floor(integer));
+        }
+        Arrays.sort(queries);
+        boolean[] contains = new boolean[queries.length];
+        set.containsAll(queries, contains);
+        for (int k = 0; k < queries.length; ++k) {
+            assertEquals(control.contains(queries[k]), contains[k]);
+        }
+
+        // bulk loading, copies and set algebra see the same universe
+        IntVanEmdeBoasTreeSet built = IntVanEmdeBoasTreeSet.forRange(lo, hi);
+        built.addAllSorted(set.toIntArray(), 0, set.size());
+        assertArrayEquals(set.toIntArray(), built.toIntArray());
+        assertEquals(control, set.copy());
+        assertEquals(control, IntVanEmdeBoasTreeSet.intersection(set, built));
+        assertTrue(IntVanEmdeBoasTreeSet.difference(set, built).isEmpty());
+        assertArrayEquals(set.toIntArray(), set.freeze().toIntArray());
+        assertEquals(control.headSet(lo + (int) (span / 2)).size(), set.headSet(lo + (int) (span / 2)).size());
+    }
+
+    @Test
+    public void testForRangeOutside() {
+        IntVanEmdeBoasTreeSet set = IntVanEmdeBoasTreeSet.forRange(-10, 20);
+        set.addInt(-10);
+        set.addInt(20);
+        assertFalse(set.containsInt(-11));
+        assertFalse(set.containsInt(21));
+        assertFalse(set.removeInt(Integer.MIN_VALUE));
+        assertEquals(-10, set.successor(Integer.MIN_VALUE));
+        try {
+            set.addInt(21);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(2, set.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForRangeEmpty() {
+        IntVanEmdeBoasTreeSet.forRange(1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForRangeDifferentUniverses() {
+        IntVanEmdeBoasTreeSet.forRange(0, 999).unionWith(IntVanEmdeBoasTreeSet.forRange(1000, 1999));
+    }
+
+    @Test
+    public void testForRangeStats() {
+        IntVanEmdeBoasTreeSet ranged = IntVanEmdeBoasTreeSet.forRange(0, 9999999);
+        IntVanEmdeBoasTreeSet full = new IntVanEmdeBoasTreeSet();
+        Random random = new Random(51);
+        // sparse enough that the 32-bit set pays mostly for its root array
+        for (int i = 0; i < 1000; ++i) {
+            int integer = random.nextInt(10000000);
+            ranged.addInt(integer);
+            full.addInt(integer);
+        }
+        IntVanEmdeBoasTreeSet.Stats stats = ranged.getStats();
+        long bytes = GraphLayout.parseInstance(ranged).totalSize();
+        assertEquals(bytes, stats.getRetainedBytes(), bytes * 0.01);
+        assertTrue(stats.getRetainedBytes() < full.getStats().getRetainedBytes());
+        assertEquals(24, ranged.getNumBits());
+        // one level less than the 32-bit set, whose 16-bit clusters are split once more
+        assertEquals(full.getStats().getClustersPerLevel().length - 1, stats.getClustersPerLevel().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddAllSortedUnsorted() {
+        new IntVanEmdeBoasTreeSet().addAllSorted(new int[] {2, 1}, 0, 2);
+    }
+
+    @Test
+    public void testAddAllSortedOutsideUniverse() {
+        assertAddAllSortedRejected(new IntVanEmdeBoasTreeSet(8), 1, 2, 1000);
+        assertAddAllSortedRejected(new IntVanEmdeBoasTreeSet(8), -5, 3);
+        assertAddAllSortedRejected(IntVanEmdeBoasTreeSet.forRange(100, 200), 50, 150);
+        assertAddAllSortedRejected(IntVanEmdeBoasTreeSet.forRange(100, 200), 150, 201);
+
+        // a set that is not empty must not be left with the keys before the bad one
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(8);
+        set.addInt(7);
+        try {
+            set.addAllSorted(new int[] {1, 2, 1000}, 0, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertArrayEquals(new int[] {7}, set.toIntArray());
+        }
+    }
+
+    private static void assertAddAllSortedRejected(IntVanEmdeBoasTreeSet set, int... keys) {
+        try {
+            set.addAllSorted(keys, 0, keys.length);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(set.isEmpty());
+            assertEquals(0, set.size());
+        }
+    }
+
+    @Test
+    public void testRanges() {
+        // small and signed full range keys, in both dense and sparse nodes
+        for (float denseFillRatio : new float[] {0, 1}) {
+            assertRanges(new IntVanEmdeBoasTreeSet(32, denseFillRatio), 1 << 16, 42);
+            assertRanges(new IntVanEmdeBoasTreeSet(32, denseFillRatio), 0, 43);
+        }
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [-bound / 2, bound / 2).
+     */
+    private void assertRanges(IntVanEmdeBoasTreeSet set, int bound, long seed) {
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(seed);
+        for (int round = 0; round < 200; ++round) {
+            while (control.size() < 2000) {
+                int integer = bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2;
+                assertEquals(control.add(integer), set.addInt(integer));
+            }
+
+            int lo = bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2;
+            int hi = bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2;
+            if (lo > hi) {
+                assertEquals(0, set.countInRange(lo, hi));
+                assertFalse(set.rangeIterator(lo, hi).hasNext());
+                assertEquals(0, set.removeRange(lo, hi));
+                continue;
+            }
+            NavigableSet<Integer> range = control.subSet(lo, true, hi, true);
+            assertEquals(range.size(), set.countInRange(lo, hi));
+            List<Integer> actual = new ArrayList<>();
+            set.rangeIterator(lo, hi).forEachRemaining((int integer) -> actual.add(integer));
+            assertEquals(new ArrayList<>(range), actual);
+
+            int removed = range.size();
+            range.clear();
+            assertEquals(removed, set.removeRange(lo, hi));
+            assertEquals(control.size(), set.size());
+            assertEquals(0, set.countInRange(lo, hi));
+            assertArrayEquals(control.toArray(), set.toArray());
+            if (!control.isEmpty()) {
+                assertEquals(control.first(), set.first());
+                assertEquals(control.last(), set.last());
+            }
+        }
+
+        assertEquals(control.size(), set.removeRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertTrue(set.isEmpty());
+        assertTrue(set.addInt(0));
+        assertEquals(1, set.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testRangeViews() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        for (int i = -10; i < 10; ++i) {
+            set.addInt(i);
+        }
+        IntNavigableSet subSet = set.subSet(-5, true, 5, false);
+        assertEquals(10, subSet.size());
+        assertEquals(2, subSet.countInRange(3, 100));
+        assertEquals(Arrays.asList(4, 3), toList(subSet.descendingSet().rangeIterator(3, 100)));
+        // ascending, whatever the order of the view
+        assertArrayEquals(new int[] {-5, -4, -3, -2, -1, 0, 1, 2, 3, 4}, subSet.descendingSet().toIntArray());
+        assertArrayEquals(set.toIntArray(), set.descendingSet().toIntArray());
+        assertEquals(2, subSet.removeRange(-100, -4));
+        assertEquals(18, set.size());
+        assertFalse(set.contains(-5));
+        assertTrue(set.contains(-6));
+    }
+
+    private static List<Integer> toList(PrimitiveIterator.OfInt iterator) {
+        List<Integer> list = new ArrayList<>();
+        iterator.forEachRemaining((int integer) -> list.add(integer));
+        return list;
+    }
+
+    @Test
+    public void testRetainAllAndRemoveAll() {
+        Random random = new Random(44);
+        for (float denseFillRatio : new float[] {0, 1}) {
+            IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+            TreeSet<Integer> control = new TreeSet<>();
+            for (int i = 0; i < 20000; ++i) {
+                int integer = random.nextInt(1 << 16) - (1 << 15);
+                set.addInt(integer);
+                control.add(integer);
+            }
+            List<Object> other = new ArrayList<>();
+            for (int i = 0; i < 10000; ++i) {
+                other.add(random.nextInt(1 << 16) - (1 << 15));
+            }
+
+            assertEquals(control.removeAll(other), set.removeAll(other));
+            assertArrayEquals(control.toArray(), set.toArray());
+            assertFalse(set.removeAll(other));
+
+            Collections.shuffle(other, random);
+            for (int i = 0; i < 5000; ++i) {
+                other.add(random.nextInt(1 << 16) - (1 << 15));
+            }
+            assertEquals(control.retainAll(other), set.retainAll(other));
+            assertArrayEquals(control.toArray(), set.toArray());
+            assertEquals(control.size(), set.size());
+            assertFalse(set.retainAll(control));
+
+            // anything other than an int is never in the set
+            assertFalse(set.removeAll(Collections.singleton("0")));
+            assertTrue(set.retainAll(Collections.singleton("0")));
+            assertTrue(set.isEmpty());
+        }
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        Random random = new Random(45);
+        // overlapping and disjoint halves, small and full range keys, dense and sparse nodes
+        for (int bound : new int[] {1 << 12, 1 << 20, 0}) {
+            for (float denseFillRatio : new float[] {0, 0.25f}) {
+                for (int round = 0; round < 20; ++round) {
+                    TreeSet<Integer> a = randomIntegers(random, bound, random.nextInt(3000));
+                    TreeSet<Integer> b = randomIntegers(random, bound, random.nextInt(3000));
+                    if (round % 4 == 0) {
+                        b.addAll(a.headSet(random.nextInt()));
+                    }
+                    assertSetAlgebra(a, b, denseFillRatio);
+                    assertSetAlgebra(b, a, denseFillRatio);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [-bound / 2, bound / 2).
+     */
+    private static TreeSet<Integer> randomIntegers(Random random, int bound, int n) {
+        TreeSet<Integer> integers = new TreeSet<>();
+        for (int i = 0; i < n; ++i) {
+            integers.add(bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2);
+        }
+        return integers;
+    }
+
+    private void assertSetAlgebra(TreeSet<Integer> a, TreeSet<Integer> b, float denseFillRatio) {
+        IntVanEmdeBoasTreeSet setA = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+        IntVanEmdeBoasTreeSet setB = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+        setA.addAll(a);
+        setB.addAll(b);
+
+        TreeSet<Integer> union = new TreeSet<>(a);
+        union.addAll(b);
+        TreeSet<Integer> intersection = new TreeSet<>(a);
+        intersection.retainAll(b);
+        TreeSet<Integer> difference = new TreeSet<>(a);
+        difference.removeAll(b);
+
+        assertSet(union, IntVanEmdeBoasTreeSet.union(setA, setB));
+        assertSet(intersection, IntVanEmdeBoasTreeSet.intersection(setA, setB));
+        assertSet(difference, IntVanEmdeBoasTreeSet.difference(setA, setB));
+        // the out of place versions leave their arguments alone
+        assertSet(a, setA);
+        assertSet(b, setB);
+
+        IntVanEmdeBoasTreeSet set = setA.copy();
+        assertEquals(union.size() != a.size(), set.unionWith(setB));
+        assertSet(union, set);
+        set = setA.copy();
+        assertEquals(intersection.size() != a.size(), set.retainAll(setB));
+        assertSet(intersection, set);
+        set = setA.copy();
+        assertEquals(difference.size() != a.size(), set.removeAll(setB));
+        assertSet(difference, set);
+        // and must still take incremental updates
+        set.unionWith(setB);
+        for (Integer integer : union) {
+            assertTrue(set.removeInt(integer));
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    private static void assertSet(NavigableSet<Integer> expected, IntVanEmdeBoasTreeSet actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.toArray(), actual.toArray());
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+            // the navigation must still work on the rebuilt clusters
+            Integer integer = expected.first();
+            for (Integer next = expected.higher(integer); next != null; next = expected.higher(next)) {
+                assertEquals(next.intValue(), actual.successor(integer));
+                assertEquals(integer.intValue(), actual.predecessor(next));
+                integer = next;
+            }
+        }
+    }
+
+    @Test
+    public void testSetAlgebraWithItself() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        set.addAll(Arrays.asList(-3, 1, 4, 1 << 20));
+        assertFalse(set.unionWith(set));
+        assertFalse(set.intersectWith(set));
+        assertEquals(4, set.size());
+        assertTrue(set.differenceWith(set));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetAlgebraDifferentUniverses() {
+        new IntVanEmdeBoasTreeSet(32).unionWith(new IntVanEmdeBoasTreeSet(16));
+    }
+
+    @Test
+    public void testWriteToReadFrom() throws IOException {
+        IntVanEmdeBoasTreeSet empty = new IntVanEmdeBoasTreeSet(16);
+        IntVanEmdeBoasTreeSet small = new IntVanEmdeBoasTreeSet(16);
+        small.addAll(Arrays.asList(0, 1, 1000, (1 << 16) - 1));
+        IntVanEmdeBoasTreeSet dense = new IntVanEmdeBoasTreeSet();
+        for (int i = -50000; i < 50000; i += 1 + (i & 1)) {
+            dense.addInt(i);
+        }
+        IntVanEmdeBoasTreeSet sparse = new IntVanEmdeBoasTreeSet(32, 0.25f);
+        Random random = new Random(46);
+        for (int i = 0; i < 10000; ++i) {
+            sparse.addInt(random.nextInt());
+        }
+        sparse.addAll(Arrays.asList(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        // the sets go back to back on one channel, so each read must take exactly its own bytes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel writable = Channels.newChannel(out);
+        for (IntVanEmdeBoasTreeSet set : Arrays.asList(empty, small, dense, sparse)) {
+            set.writeTo(writable);
+        }
+        byte[] bytes = out.toByteArray();
+        // small deltas take a byte each
+        assertTrue(bytes.length < 4 * SortedIntCodec.HEADER_BYTES + 20 + dense.size() + 5 * sparse.size());
+
+        ReadableByteChannel readable = Channels.newChannel(new ByteArrayInputStream(bytes));
+        for (IntVanEmdeBoasTreeSet set : Arrays.asList(empty, small, dense, sparse)) {
+            IntVanEmdeBoasTreeSet read = IntVanEmdeBoasTreeSet.readFrom(readable, 0.25f);
+            assertEquals(set.size(), read.size());
+            assertArrayEquals(set.toIntArray(), read.toIntArray());
+            assertEquals(set, read);
+        }
+        assertEquals(-1, readable.read(ByteBuffer.allocate(1)));
+
+        // a range off 0 reads back as a 32-bit set with the same keys
+        IntVanEmdeBoasTreeSet ranged = IntVanEmdeBoasTreeSet.forRange(-1000, 1000);
+        ranged.addAll(Arrays.asList(-1000, -1, 0, 999, 1000));
+        out.reset();
+        ranged.writeTo(writable);
+        IntVanEmdeBoasTreeSet read = IntVanEmdeBoasTreeSet.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(32, read.getNumBits());
+        assertEquals(ranged, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadFromWrongMagic() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SplayTreeSet<Integer> set = new SplayTreeSet<>();
+        set.add(1);
+        set.writeTo(Channels.newChannel(out), Integer::intValue);
+        IntVanEmdeBoasTreeSet.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFromTruncated() throws IOException {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet();
+        for (int i = 0; i < 1000; ++i) {
+            set.addInt(i * 1000);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        set.writeTo(Channels.newChannel(out));
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        IntVanEmdeBoasTreeSet.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class IntYFastTrieSetTest {
+    @Test
+    public void test() {
+        IntYFastTrieSet set = new IntYFastTrieSet();
+        assertTrue(set.isEmpty());
+        assertFalse(set.containsInt(0));
+        assertTrue(set.addInt(Integer.MAX_VALUE));
+        assertTrue(set.addInt(Integer.MIN_VALUE));
+        assertTrue(set.addInt(-1));
+        assertTrue(set.addInt(0));
+        assertFalse(set.addInt(0));
+        assertEquals(4, set.size());
+        assertArrayEquals(new int[] {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE}, set.toIntArray());
+        assertEquals(0, set.successor(-1));
+        assertEquals(-1, set.predecessor(0));
+        assertEquals(Integer.MIN_VALUE, set.firstInt());
+        assertEquals(Integer.MAX_VALUE, set.lastInt());
+        assertTrue(set.removeInt(Integer.MIN_VALUE));
+        assertFalse(set.removeInt(Integer.MIN_VALUE));
+        assertEquals(-1, set.firstInt());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorOfLast() {
+        IntYFastTrieSet set = new IntYFastTrieSet();
+        set.addInt(1);
+        set.successor(1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        // sparse keys over the whole range, and dense keys that split and merge many buckets
+        assertRandomOperations(0, 42);
+        assertRandomOperations(1 << 12, 43);
+    }
+
+    /**
+     * Draws keys from all ints if bound is 0, or else from [-bound / 2, bound / 2).
+     */
+    private void assertRandomOperations(int bound, long seed) {
+        IntYFastTrieSet set = new IntYFastTrieSet();
+        TreeSet<Integer> control = new TreeSet<>();
+        Random random = new Random(seed);
+        for (int round = 0; round < 3; ++round) {
+            // grow, then shrink to a few keys
+            for (int i = 0; i < 20000; ++i) {
+                int integer = bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2;
+                boolean add = round < 2 ? random.nextInt(4) > 0 : random.nextInt(4) == 0;
+                if (add) {
+                    assertEquals(control.add(integer), set.addInt(integer));
+                } else {
+                    assertEquals(control.remove(integer), set.removeInt(integer));
+                }
+                assertEquals(control.size(), set.size());
+            }
+            for (int i = 0; i < 10000; ++i) {
+                int integer = bound == 0 ? random.nextInt() : random.nextInt(bound) - bound / 2;
+                assertEquals(control.contains(integer), set.containsInt(integer));
+                assertEquals(control.higher(integer), set.higher(integer));
+                assertEquals(control.lower(integer), set.lower(integer));
+                assertEquals(control.ceiling(integer), set.ceiling(integer));
+            }
+            assertArrayEquals(control.toArray(), set.toArray());
+        }
+
+        for (Integer integer : control) {
+            assertTrue(set.removeInt(integer));
+        }
+        assertTrue(set.isEmpty());
+        assertArrayEquals(new int[0], set.toIntArray());
+    }
+}
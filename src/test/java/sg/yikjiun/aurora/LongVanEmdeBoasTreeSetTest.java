@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class LongVanEmdeBoasTreeSetTest {
+    @Test
+    public void test() {
+        LongVanEmdeBoasTreeSet set = new LongVanEmdeBoasTreeSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.addLong(Long.MAX_VALUE));
+        assertTrue(set.addLong(Long.MIN_VALUE));
+        assertTrue(set.addLong(-1));
+        assertTrue(set.addLong(0));
+        assertTrue(set.addLong(1L << 32));
+        assertFalse(set.addLong(-1));
+        assertFalse(set.addLong(Long.MAX_VALUE));
+        assertEquals(5, set.size());
+        assertEquals(5, set.longSize());
+        // like remove, contains is false for anything but a Long
+        assertFalse(set.contains(0));
+        assertFalse(set.contains("0"));
+        assertTrue(set.contains(0L));
+        assertFalse(set.remove(0));
+        assertArrayEquals(new long[] {Long.MIN_VALUE, -1, 0, 1L << 32, Long.MAX_VALUE}, set.toLongArray());
+        assertEquals(Long.MIN_VALUE, set.firstLong());
+        assertEquals(Long.MAX_VALUE, set.lastLong());
+        assertEquals(0, set.successor(-1));
+        assertEquals(1L << 32, set.successor(0));
+        assertEquals(-1, set.predecessor(0));
+        assertEquals(1L << 32, set.ceilingLong(1));
+        assertEquals(0, set.floorLong((1L << 32) - 1));
+
+        assertTrue(set.removeLong(Long.MIN_VALUE));
+        assertTrue(set.removeLong(1L << 32));
+        assertFalse(set.removeLong(1L << 32));
+        assertFalse(set.contains(1L << 32));
+        assertArrayEquals(new long[] {-1, 0, Long.MAX_VALUE}, set.toLongArray());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.containsLong(0));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testSuccessorOfLast() {
+        LongVanEmdeBoasTreeSet set = new LongVanEmdeBoasTreeSet();
+        set.addLong(1);
+        set.successor(1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        // keys spread over the whole domain, and timestamp-like keys sharing a few high ints
+        assertRandomOperations(new LongVanEmdeBoasTreeSet(), Long.MAX_VALUE, 42);
+        assertRandomOperations(new LongVanEmdeBoasTreeSet(), 1L << 36, 43);
+        assertRandomOperations(new LongVanEmdeBoasTreeSet(0), 1L << 20, 44);
+    }
+
+    private void assertRandomOperations(LongVanEmdeBoasTreeSet set, long bound, long seed) {
+        TreeSet<Long> control = new TreeSet<>();
+        Random random = new Random(seed);
+        long base = random.nextLong();
+        for (int i = 0; i < 10000; ++i) {
+            long l = base + random.nextLong() % bound;
+            if (random.nextInt(3) > 0) {
+                assertEquals(control.add(l), set.addLong(l));
+            } else {
+                assertEquals(control.remove(l), set.removeLong(l));
+            }
+            assertEquals(control.size(), set.size());
+        }
+        assertEquals(control.first().longValue(), set.firstLong());
+        assertEquals(control.last().longValue(), set.lastLong());
+        for (int i = 0; i < 10000; ++i) {
+            long l = base + random.nextLong() % bound;
+            assertEquals(control.contains(l), set.containsLong(l));
+            Long higher = control.higher(l);
+            if (higher != null) {
+                assertEquals(higher.longValue(), set.successor(l));
+            }
+            Long lower = control.lower(l);
+            if (lower != null) {
+                assertEquals(lower.longValue(), set.predecessor(l));
+            }
+        }
+
+        long[] expected = new long[control.size()];
+        int k = 0;
+        for (long l : control) {
+            expected[k++] = l;
+        }
+        assertArrayEquals(expected, set.toLongArray());
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        for (long l : expected) {
+            assertEquals(l, iterator.nextLong());
+        }
+        assertFalse(iterator.hasNext());
+
+        Iterator<Long> iterator2 = set.iterator();
+        while (iterator2.hasNext()) {
+            if (iterator2.next() % 2 == 0) {
+                iterator2.remove();
+            }
+        }
+        control.removeIf(l -> l % 2 == 0);
+        assertEquals(control, set);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class MpscLongRingBufferTest {
+    @Test
+    public void test() {
+        MpscLongRingBuffer buffer = new MpscLongRingBuffer(4);
+        long[] out = new long[8];
+        assertEquals(0, buffer.drain(out, out.length));
+        // around the ring a few times
+        for (int lap = 0; lap < 3; ++lap) {
+            for (int i = 0; i < 4; ++i) {
+                assertTrue(buffer.offer(lap * 10 + i));
+            }
+            assertFalse(buffer.offer(-1));
+            assertEquals(1, buffer.drain(out, 1));
+            assertEquals(lap * 10, out[0]);
+            assertTrue(buffer.offer(lap * 10 + 4));
+            assertEquals(4, buffer.drain(out, out.length));
+            for (int i = 0; i < 4; ++i) {
+                assertEquals(lap * 10 + i + 1, out[i]);
+            }
+        }
+        assertEquals(15, buffer.getTail());
+        assertEquals(15, buffer.getHead());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityNotPowerOfTwo() {
+        new MpscLongRingBuffer(6);
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        MpscLongRingBuffer buffer = new MpscLongRingBuffer(64);
+        int numProducers = 4;
+        int perProducer = 100000;
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < numProducers; ++p) {
+            long id = p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < perProducer; ++i) {
+                    while (!buffer.offer(id << 32 | i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        // each producer's elements come out whole and in its order
+        int[] next = new int[numProducers];
+        long[] out = new long[16];
+        for (int received = 0; received < numProducers * perProducer; ) {
+            int n = buffer.drain(out, out.length);
+            if (n == 0) {
+                Thread.yield();
+            }
+            for (int k = 0; k < n; ++k) {
+                int p = (int) (out[k] >>> 32);
+                assertEquals(next[p]++, (int) out[k]);
+            }
+            received += n;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (int p = 0; p < numProducers; ++p) {
+            assertEquals(perProducer, next[p]);
+        }
+        assertEquals(0, buffer.drain(out, out.length));
+    }
+}
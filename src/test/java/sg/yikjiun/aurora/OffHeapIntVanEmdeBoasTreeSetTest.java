@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Lee Yik Jiun
+ */
+public class OffHeapIntVanEmdeBoasTreeSetTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test() {
+        // small chunks, so that nodes are spread over several of them
+        for (int numBits : new int[] {1, 6, 12, 13, 20}) {
+            OffHeapIntVanEmdeBoasTreeSet set = OffHeapIntVanEmdeBoasTreeSet.allocate(numBits, 12);
+            assertRandomOperations(set, new TreeSet<Integer>(), 1 << numBits, numBits);
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("set");
+        OffHeapIntVanEmdeBoasTreeSet set = OffHeapIntVanEmdeBoasTreeSet.create(path, 32);
+        TreeSet<Integer> control = new TreeSet<>();
+        assertTrue(set.addInt(Integer.MIN_VALUE));
+        assertTrue(set.addInt(Integer.MAX_VALUE));
+        assertTrue(set.addInt(-1));
+        assertTrue(set.addInt(0));
+        control.add(Integer.MIN_VALUE);
+        control.add(Integer.MAX_VALUE);
+        control.add(-1);
+        control.add(0);
+        assertRandomOperations(set, control, 0, 42);
+        set.force();
+
+        set.close();
+
+        try (OffHeapIntVanEmdeBoasTreeSet reopened = OffHeapIntVanEmdeBoasTreeSet.open(path)) {
+            assertEquals(32, reopened.getNumBits());
+            assertEquals(control.size(), reopened.size());
+            assertEquals(control, reopened);
+            assertRandomOperations(reopened, control, 0, 43);
+        }
+    }
+
+    @Test
+    public void testClose() {
+        OffHeapIntVanEmdeBoasTreeSet set = OffHeapIntVanEmdeBoasTreeSet.allocate(16);
+        set.addInt(1);
+        set.close();
+        set.close();
+        try {
+            set.containsInt(1);
+            throw new AssertionError();
+        } catch (NullPointerException e) {
+            // rather than reading freed memory
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllocateTooLarge() {
+        OffHeapIntVanEmdeBoasTreeSet.allocate(OffHeapIntVanEmdeBoasTreeSet.MAX_ALLOCATE_BITS + 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenOtherVersion() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("set");
+        OffHeapIntVanEmdeBoasTreeSet.create(path, 16).force();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(4);
+            file.write(OffHeapIntVanEmdeBoasTreeSet.VERSION + 1);
+        }
+        OffHeapIntVanEmdeBoasTreeSet.open(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenOtherFile() throws IOException {
+        OffHeapIntVanEmdeBoasTreeSet.open(folder.newFile().toPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutsideUniverse() {
+        OffHeapIntVanEmdeBoasTreeSet set = OffHeapIntVanEmdeBoasTreeSet.allocate(16);
+        assertFalse(set.containsInt(1 << 16));
+        assertFalse(set.removeInt(-1));
+        set.addInt(1 << 16);
+    }
+
+    /**
+     * Draws keys in [0, bound), or from all ints if bound is 0.
+     */
+    private void assertRandomOperations(IntNavigableSet set, TreeSet<Integer> control, int bound, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < 10000; ++i) {
+            int integer = bound == 0 ? random.nextInt() : random.nextInt(bound);
+            if (random.nextInt(3) > 0) {
+                assertEquals(control.add(integer), set.addInt(integer));
+            } else {
+                assertEquals(control.remove(integer), set.removeInt(integer));
+            }
+            assertEquals(control.size(), set.size());
+        }
+        for (int i = 0; i < 10000; ++i) {
+            int integer = bound == 0 ? random.nextInt() : random.nextInt(bound + 2) - 1;
+            assertEquals(control.contains(integer), set.containsInt(integer));
+            assertEquals(control.higher(integer), set.higher(integer));
+            assertEquals(control.lower(integer), set.lower(integer));
+        }
+        assertArrayEquals(control.toArray(), set.toArray());
+    }
+}
@@ -176,7 +176,7 @@ public class SplayTreeNodeTest {
         node.linkLeft(left = new Node<>(1));
         node.linkRight(right = new Node<>(3));
 
-        Node predecessor = grandparent.getPredecessor();
+        Node<Integer> predecessor = grandparent.getPredecessor();
         assertEquals(parentRight, predecessor);
     }
 
@@ -190,7 +190,7 @@ public class SplayTreeNodeTest {
         node.linkLeft(left = new Node<>(5));
         node.linkRight(right = new Node<>(7));
 
-        Node successor = grandparent.getSuccessor();
+        Node<Integer> successor = grandparent.getSuccessor();
         assertEquals(parentLeft, successor);
     }
 
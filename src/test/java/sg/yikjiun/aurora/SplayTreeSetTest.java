@@ -19,6 +19,10 @@ package sg.yikjiun.aurora;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -75,6 +79,31 @@ public class SplayTreeSetTest {
         assertEquals(0, set.size());
     }
 
+    @Test
+    public void testStats() {
+        SplayTreeSet.Stats stats = set.getStats();
+        assertEquals(0, stats.getNodeCount());
+        assertEquals(0, stats.getHeight());
+        assertEquals(0, stats.getAverageAccessDepth(), 0);
+
+        // ascending inserts splay each new maximum to the root, leaving a left spine
+        for (int i = 0; i < 100; ++i) {
+            set.add(i);
+        }
+        stats = set.getStats();
+        assertEquals(100, stats.getNodeCount());
+        assertEquals(100, stats.getHeight());
+        assertEquals(100, stats.getAccessCount());
+        assertEquals(99, stats.getAccessDepthSum());
+
+        assertTrue(set.contains(99));
+        assertTrue(set.contains(0));
+        stats = set.getStats();
+        assertEquals(102, stats.getAccessCount());
+        assertEquals(99 + 1 + 100, stats.getAccessDepthSum());
+        assertEquals(200 / 102.0, stats.getAverageAccessDepth(), 1e-9);
+    }
+
     @Test
     public void testRemoveRoot() {
         set.add(1);
@@ -126,4 +155,30 @@ public class SplayTreeSetTest {
         assertTrue(set.remove(4));
         assertFalse(set.contains(4));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWriteToReadFrom() throws IOException {
+        for (Integer integer : integers) {
+            set.add(integer);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        set.writeTo(Channels.newChannel(out), Integer::intValue);
+        new SplayTreeSet<Integer>().writeTo(Channels.newChannel(out), Integer::intValue);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        SplayTreeSet<Integer> read = SplayTreeSet.readFrom(Channels.newChannel(in), Integer::valueOf);
+        assertEquals(integers.size(), read.size());
+        for (Integer integer : integers) {
+            assertTrue(read.contains(integer));
+        }
+        assertFalse(read.contains(101));
+        // built balanced rather than by splaying every key in
+        assertEquals(32 - Integer.numberOfLeadingZeros(integers.size()), read.getStats().getHeight());
+        assertTrue(SplayTreeSet.readFrom(Channels.newChannel(in), Integer::valueOf).isEmpty());
+
+        for (Integer integer : integers) {
+            assertTrue(read.remove(integer));
+        }
+        assertTrue(read.isEmpty());
+    }
+}
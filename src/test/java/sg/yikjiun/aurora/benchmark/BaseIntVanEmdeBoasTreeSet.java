@@ -14,16 +14,21 @@
  * limitations under the License.
  */
 
-package sg.yikjiun.aurora;
+package sg.yikjiun.aurora.benchmark;
 
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.NoSuchElementException;
+
+import sg.yikjiun.aurora.AbstractIntNavigableSet;
 
 /**
+ * The engine that {@link sg.yikjiun.aurora.IntVanEmdeBoasTreeSet} replaced, which goes through
+ * abstract methods for the bit arithmetic on every level. Kept only as a baseline for
+ * {@link EngineBenchmark}.
+ *
  * @author Lee Yik Jiun
  */
-public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
+public abstract class BaseIntVanEmdeBoasTreeSet extends AbstractIntNavigableSet {
     private int size = 0;
     private int max = Integer.MIN_VALUE;
     private int min = Integer.MAX_VALUE;
@@ -64,19 +69,14 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
         return child != null && child.contains(getLowerOrderBits(integer));
     }
 
-    protected abstract int getLowerOrderBits(int integer);
-
-    protected abstract int getHigherOrderBits(int integer);
-
     @Override
-    public Iterator<Integer> iterator() {
-        return null;
+    public boolean containsInt(int integer) {
+        return contains(integer);
     }
 
-    @Override
-    public Object[] toArray() {
-        return new Object[0];
-    }
+    protected abstract int getLowerOrderBits(int integer);
+
+    protected abstract int getHigherOrderBits(int integer);
 
     @Override
     public boolean add(Integer integer) {
@@ -101,9 +101,12 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
             return true;
         }
 
+        if (integer == min || integer == max) {
+            return false;
+        }
         if (integer < min) {
             int tmp = integer;
-            integer = (int) min;
+            integer = min;
             min = tmp;
         } else if (integer > max) {
             int tmp = integer;
@@ -118,7 +121,9 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
             children[i] = newIntVanEmdeBoasTreeSet();
         }
         BaseIntVanEmdeBoasTreeSet child = children[i];
-        child.add(getLowerOrderBits(integer));
+        if (!child.add(getLowerOrderBits(integer))) {
+            return false;
+        }
         if (child.min == child.max) {
             if (auxiliary == null) {
                 auxiliary = newIntVanEmdeBoasTreeSet();
@@ -129,6 +134,11 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
         return true;
     }
 
+    @Override
+    public boolean addInt(int integer) {
+        return add(integer);
+    }
+
     protected abstract BaseIntVanEmdeBoasTreeSet newIntVanEmdeBoasTreeSet();
 
     protected abstract BaseIntVanEmdeBoasTreeSet[] newChildren();
@@ -180,7 +190,9 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
             return false;
         }
 
-        child.remove(integer);
+        if (!child.remove(integer)) {
+            return false;
+        }
         if (child.isEmpty()) {
             auxiliary.remove(i);
         }
@@ -188,25 +200,93 @@ public abstract class BaseIntVanEmdeBoasTreeSet implements Set<Integer> {
         return true;
     }
 
+    @Override
+    public boolean removeInt(int integer) {
+        return remove(integer);
+    }
+
     protected abstract int getBits(int i, int integer);
 
     @Override
-    public boolean containsAll(Collection<?> c) {
-        return false;
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return min;
     }
 
     @Override
-    public boolean addAll(Collection<? extends Integer> c) {
-        return false;
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return max;
     }
 
     @Override
-    public boolean retainAll(Collection<?> c) {
-        return false;
+    public int successor(int integer) {
+        if (isEmpty() || integer >= max) {
+            throw new NoSuchElementException();
+        }
+        return getSuccessor(integer);
+    }
+
+    /**
+     * Requires integer < max, so there is always an answer and no sentinel is needed.
+     */
+    private int getSuccessor(int integer) {
+        if (integer < min) {
+            return min;
+        }
+
+        if (auxiliary != null && !auxiliary.isEmpty()) {
+            int i = getHigherOrderBits(integer);
+            int lowerOrderBits = getLowerOrderBits(integer);
+            BaseIntVanEmdeBoasTreeSet child = children[i];
+            if (child != null && !child.isEmpty() && lowerOrderBits < child.max) {
+                return getBits(i, child.getSuccessor(lowerOrderBits));
+            }
+            if (i < auxiliary.max) {
+                i = auxiliary.getSuccessor(i);
+                return getBits(i, children[i].min);
+            }
+        }
+        return max;
     }
 
     @Override
-    public boolean removeAll(Collection<?> c) {
+    public int predecessor(int integer) {
+        if (isEmpty() || integer <= min) {
+            throw new NoSuchElementException();
+        }
+        return getPredecessor(integer);
+    }
+
+    /**
+     * Requires integer > min, so there is always an answer and no sentinel is needed.
+     */
+    private int getPredecessor(int integer) {
+        if (integer > max) {
+            return max;
+        }
+
+        if (auxiliary != null && !auxiliary.isEmpty()) {
+            int i = getHigherOrderBits(integer);
+            int lowerOrderBits = getLowerOrderBits(integer);
+            BaseIntVanEmdeBoasTreeSet child = children[i];
+            if (child != null && !child.isEmpty() && lowerOrderBits > child.min) {
+                return getBits(i, child.getPredecessor(lowerOrderBits));
+            }
+            if (i > auxiliary.min) {
+                i = auxiliary.getPredecessor(i);
+                return getBits(i, children[i].max);
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
         return false;
     }
 
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Compares the batch lookups of {@link IntVanEmdeBoasTreeSet} with one lookup per key, on queries
+ * in random and in sorted order.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchQueryBenchmark {
+    @Param({"0", "0.25"})
+    float denseFillRatio;
+
+    @Param({"random", "sorted"})
+    String order;
+
+    @Param({"1000000"})
+    int n;
+
+    int[] queries;
+    boolean[] contains;
+    int[] successors;
+    IntVanEmdeBoasTreeSet set;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        set = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+        queries = new int[n];
+        for (int i = 0; i < n; ++i) {
+            set.addInt(random.nextInt(n << 4));
+            queries[i] = random.nextInt(n << 4);
+        }
+        if (order.equals("sorted")) {
+            Arrays.sort(queries);
+        }
+        // keep every query below the last element so that it has a successor
+        set.addInt(Integer.MAX_VALUE);
+        contains = new boolean[n];
+        successors = new int[n];
+    }
+
+    @Benchmark
+    public void containsEach(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.containsInt(query));
+        }
+    }
+
+    @Benchmark
+    public boolean containsBatch() {
+        return set.containsAll(queries, contains);
+    }
+
+    @Benchmark
+    public void successorEach(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.successor(query));
+        }
+    }
+
+    @Benchmark
+    public int[] successorBatch() {
+        set.successors(queries, successors);
+        return successors;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.ConcurrentIntVanEmdeBoasTreeSet;
+
+/**
+ * Measures the throughput of {@link ConcurrentIntVanEmdeBoasTreeSet} and
+ * {@link ConcurrentSkipListSet} under a mix of contains, successor, add and remove calls from
+ * several threads, on keys spread over the whole int range.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentSetBenchmark {
+    @Param({"10", "50"})
+    int writePercent;
+
+    @Param({"100000"})
+    int n;
+
+    ConcurrentIntVanEmdeBoasTreeSet vanEmdeBoasTreeSet;
+    ConcurrentSkipListSet<Integer> concurrentSkipListSet;
+
+    @Setup
+    public void setUp() {
+        vanEmdeBoasTreeSet = new ConcurrentIntVanEmdeBoasTreeSet();
+        concurrentSkipListSet = new ConcurrentSkipListSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < n; ++i) {
+            int key = random.nextInt();
+            vanEmdeBoasTreeSet.addInt(key);
+            concurrentSkipListSet.add(key);
+        }
+    }
+
+    @Benchmark
+    public Object vanEmdeBoasTreeSet() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt();
+        int op = random.nextInt(100);
+        if (op < writePercent) {
+            return (op & 1) == 0 ? vanEmdeBoasTreeSet.addInt(key) : vanEmdeBoasTreeSet.removeInt(key);
+        }
+        return (op & 1) == 0 ? vanEmdeBoasTreeSet.containsInt(key) : vanEmdeBoasTreeSet.higher(key);
+    }
+
+    @Benchmark
+    public Object concurrentSkipListSet() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt();
+        int op = random.nextInt(100);
+        if (op < writePercent) {
+            return (op & 1) == 0 ? concurrentSkipListSet.add(key) : concurrentSkipListSet.remove(key);
+        }
+        return (op & 1) == 0 ? concurrentSkipListSet.contains(key) : concurrentSkipListSet.higher(key);
+    }
+}
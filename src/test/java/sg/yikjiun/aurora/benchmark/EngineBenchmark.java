@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntNavigableSet;
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Compares {@link IntVanEmdeBoasTreeSet} with the abstract engine it replaced, in its square root
+ * and shift and mask forms, on add, contains and remove. The keys are non-negative since the
+ * square root form cannot take negative ints.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+    @Param({"IntVanEmdeBoasTreeSet", "IntVanEmdeBoasTreeSetV1", "IntVanEmdeBoasTreeSetV2"})
+    String type;
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] keys;
+    int[] queries;
+    IntNavigableSet set;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[n];
+        queries = new int[n];
+        for (int i = 0; i < n; ++i) {
+            keys[i] = random.nextInt(Integer.MAX_VALUE);
+            queries[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        set = add();
+    }
+
+    private IntNavigableSet newSet() {
+        switch (type) {
+            case "IntVanEmdeBoasTreeSet":
+                return new IntVanEmdeBoasTreeSet();
+            case "IntVanEmdeBoasTreeSetV1":
+                return new IntVanEmdeBoasTreeSetV1();
+            case "IntVanEmdeBoasTreeSetV2":
+                return new IntVanEmdeBoasTreeSetV2();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public IntNavigableSet add() {
+        IntNavigableSet set = newSet();
+        for (int key : keys) {
+            set.addInt(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.containsInt(query));
+        }
+    }
+
+    /**
+     * Removes each key and adds it back, so the set ends as it started.
+     */
+    @Benchmark
+    public void removeAdd() {
+        for (int key : keys) {
+            set.removeInt(key);
+            set.addInt(key);
+        }
+    }
+}
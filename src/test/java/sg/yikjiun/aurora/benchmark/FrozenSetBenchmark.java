@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.FrozenIntVanEmdeBoasTreeSet;
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Compares lookups on {@link IntVanEmdeBoasTreeSet} with lookups on its frozen snapshot, on keys
+ * spread over all ints and on keys packed into a small range.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class FrozenSetBenchmark {
+    @Param({"random", "dense"})
+    String keyDistribution;
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] queries;
+    IntVanEmdeBoasTreeSet set;
+    FrozenIntVanEmdeBoasTreeSet frozen;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        queries = new int[n];
+        set = new IntVanEmdeBoasTreeSet();
+        for (int i = 0; i < n; ++i) {
+            if (keyDistribution.equals("random")) {
+                set.addInt(random.nextInt());
+                queries[i] = random.nextInt();
+            } else {
+                set.addInt(random.nextInt(4 * n));
+                queries[i] = random.nextInt(4 * n);
+            }
+        }
+        frozen = freeze();
+    }
+
+    @Benchmark
+    public FrozenIntVanEmdeBoasTreeSet freeze() {
+        return set.freeze();
+    }
+
+    @Benchmark
+    public void containsVanEmdeBoasTreeSet(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.containsInt(query));
+        }
+    }
+
+    @Benchmark
+    public void containsFrozen(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(frozen.containsInt(query));
+        }
+    }
+
+    @Benchmark
+    public void successorVanEmdeBoasTreeSet(Blackhole blackhole) {
+        int last = set.lastInt();
+        for (int query : queries) {
+            if (query < last) {
+                blackhole.consume(set.successor(query));
+            }
+        }
+    }
+
+    @Benchmark
+    public void successorFrozen(Blackhole blackhole) {
+        int last = frozen.lastInt();
+        for (int query : queries) {
+            if (query < last) {
+                blackhole.consume(frozen.successor(query));
+            }
+        }
+    }
+}
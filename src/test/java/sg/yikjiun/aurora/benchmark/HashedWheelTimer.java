@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel in the style of Netty's HashedWheelTimer, as a baseline for
+ * {@link sg.yikjiun.aurora.IntVanEmdeBoasTimer}. Each slot holds a doubly linked list of the
+ * timeouts whose deadline maps to it, so scheduling and cancelling are O(1), but every tick is
+ * visited, and a slot's timeouts that are a round or more away are walked past on each visit.
+ *
+ * @author Lee Yik Jiun
+ */
+final class HashedWheelTimer<T> {
+    private final Timeout<T>[] wheel;
+    private final int mask;
+    // the next tick to expire
+    private int tick;
+    private int size = 0;
+
+    /**
+     * @param numSlots must be a power of two.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    HashedWheelTimer(int numSlots, int tick) {
+        wheel = new Timeout[numSlots];
+        mask = numSlots - 1;
+        this.tick = tick;
+    }
+
+    static final class Timeout<T> {
+        private final HashedWheelTimer<T> timer;
+        private final int deadline;
+        private final T task;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean pending = true;
+
+        Timeout(HashedWheelTimer<T> timer, int deadline, T task) {
+            this.timer = timer;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        boolean cancel() {
+            if (!pending) {
+                return false;
+            }
+            pending = false;
+            timer.unlink(this);
+            return true;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Schedules the task, at the next tick if the deadline has passed.
+     */
+    Timeout<T> schedule(int deadline, T task) {
+        deadline = Math.max(deadline, tick);
+        Timeout<T> timeout = new Timeout<>(this, deadline, task);
+        int slot = deadline & mask;
+        timeout.next = wheel[slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheel[slot] = timeout;
+        ++size;
+        return timeout;
+    }
+
+    /**
+     * Expires the timeouts of the next tick.
+     *
+     * @return the number of timeouts expired.
+     */
+    int advance(Consumer<? super T> action) {
+        int expired = 0;
+        for (Timeout<T> timeout = wheel[tick & mask]; timeout != null; ) {
+            Timeout<T> next = timeout.next;
+            if (timeout.deadline == tick) {
+                timeout.pending = false;
+                unlink(timeout);
+                action.accept(timeout.task);
+                ++expired;
+            }
+            timeout = next;
+        }
+        ++tick;
+        return expired;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev == null) {
+            wheel[timeout.deadline & mask] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        --size;
+    }
+}
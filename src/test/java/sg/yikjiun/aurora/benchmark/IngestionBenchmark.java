@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasIngestor;
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Measures the write throughput of several threads adding and removing random keys of a 2^20
+ * universe, through an {@link IntVanEmdeBoasIngestor} and through a global lock on an
+ * {@link IntVanEmdeBoasTreeSet}. The ingestor publishes a snapshot every 100 ms, and its
+ * producers wait while the applier is behind, so the score is what it sustains.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IngestionBenchmark {
+    private static final int UNIVERSE = 1 << 20;
+
+    @Param({"256", "4096"})
+    int batchSize;
+
+    IntVanEmdeBoasTreeSet lockedSet;
+    IntVanEmdeBoasIngestor ingestor;
+
+    @Setup
+    public void setUp() {
+        lockedSet = new IntVanEmdeBoasTreeSet();
+        ingestor = new IntVanEmdeBoasIngestor(new IntVanEmdeBoasTreeSet(), 1 << 16, batchSize,
+            TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ingestor.close();
+    }
+
+    @Benchmark
+    public boolean locked() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(UNIVERSE);
+        synchronized (lockedSet) {
+            return random.nextBoolean() ? lockedSet.addInt(key) : lockedSet.removeInt(key);
+        }
+    }
+
+    @Benchmark
+    public void ingestor() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(UNIVERSE);
+        if (random.nextBoolean()) {
+            ingestor.add(key);
+        } else {
+            ingestor.remove(key);
+        }
+    }
+}
@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package sg.yikjiun.aurora;
+package sg.yikjiun.aurora.benchmark;
 
 /**
  * @author Lee Yik Jiun
@@ -54,9 +54,4 @@ public class IntVanEmdeBoasTreeSetV1 extends BaseIntVanEmdeBoasTreeSet {
     protected int getBits(int i, int integer) {
         return i * sqrtM + integer;
     }
-
-    @Override
-    public <T> T[] toArray(T[] a) {
-        return null;
-    }
 }
\ No newline at end of file
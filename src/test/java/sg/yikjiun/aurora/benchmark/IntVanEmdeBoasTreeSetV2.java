@@ -14,14 +14,19 @@
  * limitations under the License.
  */
 
-package sg.yikjiun.aurora;
+package sg.yikjiun.aurora.benchmark;
 
 /**
+ * A 32-bit set takes any int, by computing cluster indices from the integer minus
+ * Integer.MIN_VALUE so that unsigned cluster order matches signed int order.
+ *
  * @author Lee Yik Jiun
  */
 public class IntVanEmdeBoasTreeSetV2 extends BaseIntVanEmdeBoasTreeSet {
     private final int numBits;
     private final int halfNumBits;
+    // Integer.MIN_VALUE for 32 bits, 0 otherwise
+    private final int offset;
 
     public IntVanEmdeBoasTreeSetV2() {
         this(32);
@@ -30,23 +35,24 @@ public class IntVanEmdeBoasTreeSetV2 extends BaseIntVanEmdeBoasTreeSet {
     public IntVanEmdeBoasTreeSetV2(int numBits) {
         this.numBits = numBits;
         halfNumBits = numBits >> 1;
+        offset = numBits == 32 ? Integer.MIN_VALUE : 0;
     }
 
     @Override
     protected int getHigherOrderBits(int i) {
         assert numBits == 32 || i < (1 << numBits);
-        return i >> halfNumBits;
+        return i - offset >>> halfNumBits;
     }
 
     @Override
     protected int getLowerOrderBits(int i) {
         assert numBits == 32 || i < (1 << numBits);
-        return i & (1 << halfNumBits) - 1;
+        return i - offset & (1 << halfNumBits) - 1;
     }
 
     @Override
     protected int getBits(int higherOrderBits, int lowerOrderBits) {
-        return (higherOrderBits << halfNumBits) | lowerOrderBits;
+        return (higherOrderBits << halfNumBits | lowerOrderBits) + offset;
     }
 
     @Override
@@ -58,9 +64,4 @@ public class IntVanEmdeBoasTreeSetV2 extends BaseIntVanEmdeBoasTreeSet {
     protected BaseIntVanEmdeBoasTreeSet[] newChildren() {
         return new IntVanEmdeBoasTreeSetV2[1 << halfNumBits];
     }
-
-    @Override
-    public <T> T[] toArray(T[] a) {
-        return null;
-    }
 }
\ No newline at end of file
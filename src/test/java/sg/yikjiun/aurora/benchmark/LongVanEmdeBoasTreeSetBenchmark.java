@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.LongVanEmdeBoasTreeSet;
+
+/**
+ * Compares {@link LongVanEmdeBoasTreeSet} with {@link TreeSet} and {@link ConcurrentSkipListSet}
+ * on random longs and on timestamp-like keys, which share their high ints.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LongVanEmdeBoasTreeSetBenchmark {
+    @Param({"random", "timestamps"})
+    String keyDistribution;
+
+    @Param({"1000", "100000"})
+    int n;
+
+    long[] keys;
+    long[] queries;
+    LongVanEmdeBoasTreeSet vanEmdeBoasTreeSet;
+    TreeSet<Long> treeSet;
+    ConcurrentSkipListSet<Long> concurrentSkipListSet;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new long[n];
+        queries = new long[n];
+        long now = 1_450_000_000_000_000L;
+        for (int i = 0; i < n; ++i) {
+            if (keyDistribution.equals("random")) {
+                keys[i] = random.nextLong();
+                queries[i] = random.nextLong();
+            } else {
+                // microsecond timestamps over about a day
+                keys[i] = now + random.nextInt(Integer.MAX_VALUE) * 40L;
+                queries[i] = now + random.nextInt(Integer.MAX_VALUE) * 40L;
+            }
+        }
+        vanEmdeBoasTreeSet = addVanEmdeBoasTreeSet();
+        treeSet = addTreeSet();
+        concurrentSkipListSet = addConcurrentSkipListSet();
+    }
+
+    @Benchmark
+    public LongVanEmdeBoasTreeSet addVanEmdeBoasTreeSet() {
+        LongVanEmdeBoasTreeSet set = new LongVanEmdeBoasTreeSet();
+        for (long key : keys) {
+            set.addLong(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public TreeSet<Long> addTreeSet() {
+        TreeSet<Long> set = new TreeSet<>();
+        for (long key : keys) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public ConcurrentSkipListSet<Long> addConcurrentSkipListSet() {
+        ConcurrentSkipListSet<Long> set = new ConcurrentSkipListSet<>();
+        for (long key : keys) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public void containsVanEmdeBoasTreeSet(Blackhole blackhole) {
+        for (long query : queries) {
+            blackhole.consume(vanEmdeBoasTreeSet.containsLong(query));
+        }
+    }
+
+    @Benchmark
+    public void containsTreeSet(Blackhole blackhole) {
+        for (long query : queries) {
+            blackhole.consume(treeSet.contains(query));
+        }
+    }
+
+    @Benchmark
+    public void containsConcurrentSkipListSet(Blackhole blackhole) {
+        for (long query : queries) {
+            blackhole.consume(concurrentSkipListSet.contains(query));
+        }
+    }
+
+    @Benchmark
+    public void successorVanEmdeBoasTreeSet(Blackhole blackhole) {
+        long last = vanEmdeBoasTreeSet.lastLong();
+        for (long query : queries) {
+            if (query < last) {
+                blackhole.consume(vanEmdeBoasTreeSet.successor(query));
+            }
+        }
+    }
+
+    @Benchmark
+    public void successorTreeSet(Blackhole blackhole) {
+        for (long query : queries) {
+            blackhole.consume(treeSet.higher(query));
+        }
+    }
+
+    @Benchmark
+    public void successorConcurrentSkipListSet(Blackhole blackhole) {
+        for (long query : queries) {
+            blackhole.consume(concurrentSkipListSet.higher(query));
+        }
+    }
+}
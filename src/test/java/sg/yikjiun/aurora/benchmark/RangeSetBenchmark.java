@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Compares a set made by {@link IntVanEmdeBoasTreeSet#forRange(int, int)} for [0, 10^7) with the
+ * 32-bit default on keys drawn from that range. The retained bytes of both are printed at setup,
+ * as JMH only measures time.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RangeSetBenchmark {
+    private static final int RANGE = 10000000;
+
+    @Param({"forRange", "32-bit"})
+    String type;
+
+    @Param({"1000", "100000", "1000000"})
+    int n;
+
+    int[] keys;
+    int[] queries;
+    IntVanEmdeBoasTreeSet set;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[n];
+        queries = new int[n];
+        for (int i = 0; i < n; ++i) {
+            keys[i] = random.nextInt(RANGE);
+            queries[i] = random.nextInt(RANGE);
+        }
+        set = add();
+        System.out.println(type + " " + n + ": " + set.getStats());
+    }
+
+    private IntVanEmdeBoasTreeSet newSet() {
+        switch (type) {
+            case "forRange":
+                return IntVanEmdeBoasTreeSet.forRange(0, RANGE - 1);
+            case "32-bit":
+                return new IntVanEmdeBoasTreeSet();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public IntVanEmdeBoasTreeSet add() {
+        IntVanEmdeBoasTreeSet set = newSet();
+        for (int key : keys) {
+            set.addInt(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.containsInt(query));
+        }
+    }
+
+    @Benchmark
+    public void ceiling(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.ceiling(query));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasPriorityQueue;
+
+/**
+ * Runs Dijkstra's algorithm on a random sparse graph with {@link IntVanEmdeBoasPriorityQueue} and
+ * decreaseKey, and with {@link PriorityQueue} and lazy deletion of stale entries, which is how it
+ * is usually done since PriorityQueue has no decreaseKey. The PriorityQueue entries are distance
+ * and vertex packed into a boxed long.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortestPathBenchmark {
+    @Param({"10000", "1000000"})
+    int n;
+
+    @Param({"100", "1000000"})
+    int maxWeight;
+
+    // edges of vertex u are targets[offsets[u], offsets[u + 1])
+    int[] offsets;
+    int[] targets;
+    int[] weights;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int degree = 8;
+        offsets = new int[n + 1];
+        targets = new int[n * degree];
+        weights = new int[n * degree];
+        for (int u = 0; u < n; ++u) {
+            offsets[u + 1] = offsets[u] + degree;
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                targets[e] = random.nextInt(n);
+                weights[e] = random.nextInt(maxWeight);
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] vanEmdeBoasPriorityQueue() {
+        int[] distances = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[0] = 0;
+        IntVanEmdeBoasPriorityQueue queue = new IntVanEmdeBoasPriorityQueue(32, n);
+        queue.insert(0, 0);
+        while (!queue.isEmpty()) {
+            int u = queue.extractMin();
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int v = targets[e];
+                int distance = distances[u] + weights[e];
+                if (distance < distances[v]) {
+                    if (queue.contains(v)) {
+                        queue.decreaseKey(v, distance);
+                    } else {
+                        queue.insert(v, distance);
+                    }
+                    distances[v] = distance;
+                }
+            }
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public int[] priorityQueue() {
+        int[] distances = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[0] = 0;
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add(0L);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int u = (int) entry;
+            if (entry >>> 32 > distances[u]) {
+                continue;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int v = targets[e];
+                int distance = distances[u] + weights[e];
+                if (distance < distances[v]) {
+                    distances[v] = distance;
+                    queue.add((long) distance << 32 | v);
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Slides a window over increasing keys, so that clusters keep filling up and emptying, with and
+ * without a pool of emptied clusters. Run with -prof gc to see the allocation rate.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SlidingWindowBenchmark {
+    @Param({"0", "0.25"})
+    float denseFillRatio;
+
+    @Param({"0", "256"})
+    int poolCapacity;
+
+    @Param({"65536"})
+    int window;
+
+    Random random;
+    // the keys in the window, oldest at head
+    int[] ring;
+    int head;
+    int key;
+    IntVanEmdeBoasTreeSet set;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        ring = new int[window];
+        set = new IntVanEmdeBoasTreeSet(32, denseFillRatio, poolCapacity);
+        for (int i = 0; i < window; ++i) {
+            ring[i] = nextKey();
+            set.addInt(ring[i]);
+        }
+    }
+
+    /**
+     * Gaps of about 2^10 leave a few keys in each cluster of 2^8, so the window keeps emptying old
+     * clusters and creating new ones. Keys wrap around after 2^32, which is fine for a set.
+     */
+    private int nextKey() {
+        key += 1 + random.nextInt(1 << 11);
+        return key;
+    }
+
+    @Benchmark
+    public IntVanEmdeBoasTreeSet slide() {
+        for (int i = 0; i < window; ++i) {
+            set.removeInt(ring[head]);
+            ring[head] = nextKey();
+            set.addInt(ring[head]);
+            head = head + 1 == window ? 0 : head + 1;
+        }
+        return set;
+    }
+}
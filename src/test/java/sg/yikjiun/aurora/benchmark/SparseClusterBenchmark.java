@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+
+/**
+ * Compares the dense children arrays with the sparse cluster directory on keys spread over the
+ * whole non-negative int range, and prints the retained bytes per element of each.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SparseClusterBenchmark {
+    @Param({"0", "0.25"})
+    float denseFillRatio;
+
+    @Param({"1000", "100000"})
+    int n;
+
+    int[] keys;
+    IntVanEmdeBoasTreeSet set;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[n];
+        for (int i = 0; i < n; ++i) {
+            keys[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        set = build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        long bytes = GraphLayout.parseInstance(set).totalSize();
+        System.out.printf("%n%d keys, denseFillRatio %s: %d bytes, %.1f bytes/element%n",
+            n, denseFillRatio, bytes, (double) bytes / set.size());
+    }
+
+    private IntVanEmdeBoasTreeSet build() {
+        IntVanEmdeBoasTreeSet set = new IntVanEmdeBoasTreeSet(32, denseFillRatio);
+        for (int key : keys) {
+            set.addInt(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public IntVanEmdeBoasTreeSet add() {
+        return build();
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(set.containsInt(key));
+            blackhole.consume(set.containsInt(key + 1));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntNavigableSet;
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeSet;
+import sg.yikjiun.aurora.IntYFastTrieSet;
+
+/**
+ * Compares the sets of the primitive API on keys spread over the whole int range, and prints the
+ * retained bytes per element of each.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SparseSetBenchmark {
+    @Param({"yFastTrie", "vanEmdeBoas", "sparseVanEmdeBoas"})
+    String implementation;
+
+    @Param({"1000", "100000"})
+    int n;
+
+    int[] keys;
+    int[] queries;
+    IntNavigableSet set;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[n];
+        queries = new int[n];
+        for (int i = 0; i < n; ++i) {
+            keys[i] = random.nextInt();
+            queries[i] = random.nextInt();
+        }
+        set = add();
+    }
+
+    @TearDown
+    public void tearDown() {
+        long bytes = GraphLayout.parseInstance(set).totalSize();
+        System.out.printf("%n%d keys, %s: %d bytes, %.1f bytes/element%n",
+            n, implementation, bytes, (double) bytes / set.size());
+    }
+
+    private IntNavigableSet newSet() {
+        switch (implementation) {
+            case "yFastTrie":
+                return new IntYFastTrieSet();
+            case "vanEmdeBoas":
+                return new IntVanEmdeBoasTreeSet();
+            case "sparseVanEmdeBoas":
+                return new IntVanEmdeBoasTreeSet(32, 0.25f);
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    @Benchmark
+    public IntNavigableSet add() {
+        IntNavigableSet set = newSet();
+        for (int key : keys) {
+            set.addInt(key);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(set.containsInt(query));
+        }
+    }
+
+    @Benchmark
+    public void successor(Blackhole blackhole) {
+        int last = set.lastInt();
+        for (int query : queries) {
+            if (query < last) {
+                blackhole.consume(set.successor(query));
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTimer;
+
+/**
+ * Compares {@link IntVanEmdeBoasTimer} with a {@link HashedWheelTimer} of 512 slots and with a
+ * {@link DelayQueue}, the queue behind ScheduledThreadPoolExecutor, on deadlines up to horizon
+ * ticks ahead.
+ *
+ * drain schedules n timeouts, cancels every other one and runs time forward until the rest have
+ * expired, which measures throughput. The vEB timer jumps to its next deadline, the wheel visits
+ * every tick, and the DelayQueue, which can only cancel in O(n), marks cancelled timeouts and
+ * skips them when they come out, as ScheduledThreadPoolExecutor does by default.
+ *
+ * tick keeps n timeouts pending and times one tick: expiring the due timeouts and scheduling a
+ * new one for each, which is the latency a timer thread adds per tick.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerBenchmark {
+    private static final int WHEEL_SLOTS = 512;
+    private static final Object TASK = new Object();
+
+    @Param({"IntVanEmdeBoasTimer", "HashedWheelTimer", "DelayQueue"})
+    String type;
+
+    @Param({"10000", "1000000"})
+    int n;
+
+    @Param({"1000", "1000000"})
+    int horizon;
+
+    int[] deadlines;
+    Random random;
+    // the steady state of tick
+    Clock clock;
+    IntVanEmdeBoasTimer<Object> timer;
+    HashedWheelTimer<Object> wheel;
+    DelayQueue<DelayedTimeout> queue;
+
+    static final class Clock {
+        int now;
+    }
+
+    /**
+     * A DelayQueue element whose delay is measured in ticks of a clock shared by the queue.
+     */
+    static final class DelayedTimeout implements Delayed {
+        final Clock clock;
+        final int deadline;
+        final Object task;
+        boolean cancelled;
+
+        DelayedTimeout(Clock clock, int deadline, Object task) {
+            this.clock = clock;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            // DelayQueue only looks at the sign
+            return deadline - clock.now;
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Integer.compare(deadline, ((DelayedTimeout) o).deadline);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        deadlines = new int[n];
+        for (int i = 0; i < n; ++i) {
+            deadlines[i] = random.nextInt(horizon);
+        }
+
+        clock = new Clock();
+        timer = new IntVanEmdeBoasTimer<>();
+        // tick expires the next tick first
+        wheel = new HashedWheelTimer<>(WHEEL_SLOTS, 1);
+        queue = new DelayQueue<>();
+        for (int deadline : deadlines) {
+            switch (type) {
+                case "IntVanEmdeBoasTimer":
+                    timer.schedule(deadline + 1, TASK);
+                    break;
+                case "HashedWheelTimer":
+                    wheel.schedule(deadline + 1, TASK);
+                    break;
+                case "DelayQueue":
+                    queue.add(new DelayedTimeout(clock, deadline + 1, TASK));
+                    break;
+                default:
+                    throw new IllegalArgumentException(type);
+            }
+        }
+    }
+
+    @Benchmark
+    public int drain(Blackhole blackhole) {
+        switch (type) {
+            case "IntVanEmdeBoasTimer": {
+                IntVanEmdeBoasTimer<Object> timer = new IntVanEmdeBoasTimer<>();
+                IntVanEmdeBoasTimer.Timeout<?>[] timeouts = new IntVanEmdeBoasTimer.Timeout<?>[n];
+                for (int i = 0; i < n; ++i) {
+                    timeouts[i] = timer.schedule(deadlines[i], TASK);
+                }
+                for (int i = 1; i < n; i += 2) {
+                    timeouts[i].cancel();
+                }
+                int expired = 0;
+                while (!timer.isEmpty()) {
+                    expired += timer.expire(timer.nextDeadline(), blackhole::consume);
+                }
+                return expired;
+            }
+            case "HashedWheelTimer": {
+                HashedWheelTimer<Object> wheel = new HashedWheelTimer<>(WHEEL_SLOTS, 0);
+                HashedWheelTimer.Timeout<?>[] timeouts = new HashedWheelTimer.Timeout<?>[n];
+                for (int i = 0; i < n; ++i) {
+                    timeouts[i] = wheel.schedule(deadlines[i], TASK);
+                }
+                for (int i = 1; i < n; i += 2) {
+                    timeouts[i].cancel();
+                }
+                int expired = 0;
+                while (!wheel.isEmpty()) {
+                    expired += wheel.advance(blackhole::consume);
+                }
+                return expired;
+            }
+            case "DelayQueue": {
+                Clock clock = new Clock();
+                DelayQueue<DelayedTimeout> queue = new DelayQueue<>();
+                DelayedTimeout[] timeouts = new DelayedTimeout[n];
+                for (int i = 0; i < n; ++i) {
+                    timeouts[i] = new DelayedTimeout(clock, deadlines[i], TASK);
+                    queue.add(timeouts[i]);
+                }
+                for (int i = 1; i < n; i += 2) {
+                    timeouts[i].cancelled = true;
+                }
+                int expired = 0;
+                for (DelayedTimeout head; (head = queue.peek()) != null; ) {
+                    clock.now = head.deadline;
+                    for (DelayedTimeout timeout; (timeout = queue.poll()) != null; ) {
+                        if (!timeout.cancelled) {
+                            blackhole.consume(timeout.task);
+                            ++expired;
+                        }
+                    }
+                }
+                return expired;
+            }
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int tick(Blackhole blackhole) {
+        int now = ++clock.now;
+        int expired;
+        switch (type) {
+            case "IntVanEmdeBoasTimer":
+                expired = timer.expire(now, blackhole::consume);
+                for (int i = 0; i < expired; ++i) {
+                    timer.schedule(now + 1 + random.nextInt(horizon), TASK);
+                }
+                return expired;
+            case "HashedWheelTimer":
+                expired = wheel.advance(blackhole::consume);
+                for (int i = 0; i < expired; ++i) {
+                    wheel.schedule(now + 1 + random.nextInt(horizon), TASK);
+                }
+                return expired;
+            case "DelayQueue":
+                expired = 0;
+                for (DelayedTimeout timeout; (timeout = queue.poll()) != null; ) {
+                    blackhole.consume(timeout.task);
+                    ++expired;
+                }
+                for (int i = 0; i < expired; ++i) {
+                    queue.add(new DelayedTimeout(clock, now + 1 + random.nextInt(horizon), TASK));
+                }
+                return expired;
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+}
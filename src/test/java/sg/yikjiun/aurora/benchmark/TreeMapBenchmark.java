@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Lee Yik Jiun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sg.yikjiun.aurora.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import sg.yikjiun.aurora.IntVanEmdeBoasTreeMap;
+
+/**
+ * Compares {@link IntVanEmdeBoasTreeMap} with {@link TreeMap} on point lookups, floor lookups and
+ * churn, with keys spread over all ints.
+ *
+ * @author Lee Yik Jiun
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class TreeMapBenchmark {
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] keys;
+    int[] queries;
+    IntVanEmdeBoasTreeMap<Object> vanEmdeBoasTreeMap;
+    TreeMap<Integer, Object> treeMap;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new int[n];
+        queries = new int[n];
+        vanEmdeBoasTreeMap = new IntVanEmdeBoasTreeMap<>();
+        treeMap = new TreeMap<>();
+        for (int i = 0; i < n; ++i) {
+            keys[i] = random.nextInt();
+            queries[i] = random.nextInt();
+            vanEmdeBoasTreeMap.put(keys[i], keys);
+            treeMap.put(keys[i], keys);
+        }
+    }
+
+    @Benchmark
+    public void getVanEmdeBoasTreeMap(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(vanEmdeBoasTreeMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getTreeMap(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(treeMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void floorEntryVanEmdeBoasTreeMap(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(vanEmdeBoasTreeMap.floorEntry(query));
+        }
+    }
+
+    @Benchmark
+    public void floorEntryTreeMap(Blackhole blackhole) {
+        for (int query : queries) {
+            blackhole.consume(treeMap.floorEntry(query));
+        }
+    }
+
+    /**
+     * Removes each key and puts it back, so the map ends as it started.
+     */
+    @Benchmark
+    public void removePutVanEmdeBoasTreeMap() {
+        for (int key : keys) {
+            vanEmdeBoasTreeMap.put(key, vanEmdeBoasTreeMap.remove(key));
+        }
+    }
+
+    @Benchmark
+    public void removePutTreeMap() {
+        for (int key : keys) {
+            treeMap.put(key, treeMap.remove(key));
+        }
+    }
+}